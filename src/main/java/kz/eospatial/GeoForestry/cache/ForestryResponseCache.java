@@ -0,0 +1,121 @@
+package kz.eospatial.GeoForestry.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import kz.eospatial.GeoForestry.dto.ForestryDto;
+import kz.eospatial.GeoForestry.events.ForestryChangedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+// Готовые к отправке тела ответов (UTF-8 JSON и, при необходимости, gzip) для каждой версии лесничества
+@Component
+public class ForestryResponseCache {
+
+    private final ObjectMapper objectMapper;
+    private final BoundedCache<String, CachedResponse> cache;
+    private final boolean gzipEnabled;
+    private final int gzipMinSize;
+
+    public ForestryResponseCache(ObjectMapper objectMapper,
+                                 @Value("${forestry.response-cache.max-size:10000}") int maxSize,
+                                 @Value("${forestry.response-cache.ttl-seconds:3600}") long ttlSeconds,
+                                 @Value("${forestry.response-cache.gzip:true}") boolean gzipEnabled,
+                                 @Value("${forestry.response-cache.gzip-min-size:1024}") int gzipMinSize) {
+        this.objectMapper = objectMapper;
+        this.cache = new BoundedCache<>(maxSize, ttlSeconds * 1000);
+        this.gzipEnabled = gzipEnabled;
+        this.gzipMinSize = gzipMinSize;
+    }
+
+    // Ключ включает версию, поэтому устаревшее тело никогда не будет отдано
+    public CachedResponse get(ForestryDto forestry, String variant, Supplier<Object> bodySupplier) {
+        String key = key(forestry.getId(), forestry.getVersion(), variant);
+        CachedResponse cached = cache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        CachedResponse rendered = render(bodySupplier.get());
+        cache.put(key, rendered);
+        return rendered;
+    }
+
+    // Тело уже сериализовано вызывающей стороной (например, GeoJSON геометрии); null не кэшируется
+    public CachedResponse getJson(ForestryDto forestry, String variant, Supplier<byte[]> jsonSupplier) {
+        String key = key(forestry.getId(), forestry.getVersion(), variant);
+        CachedResponse cached = cache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        byte[] json = jsonSupplier.get();
+        if (json == null) {
+            return null;
+        }
+        CachedResponse rendered = render(json);
+        cache.put(key, rendered);
+        return rendered;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onForestryChanged(ForestryChangedEvent event) {
+        String prefix = event.getForestryId() + ":";
+        cache.invalidateIf(key -> key.startsWith(prefix));
+    }
+
+    public Map<String, Object> stats() {
+        return cache.stats();
+    }
+
+    private CachedResponse render(Object body) {
+        try {
+            return render(objectMapper.writeValueAsBytes(body));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unable to serialize forestry response", e);
+        }
+    }
+
+    private CachedResponse render(byte[] json) {
+        byte[] gzip = gzipEnabled && json.length >= gzipMinSize ? gzip(json) : null;
+        return new CachedResponse(json, gzip);
+    }
+
+    private static byte[] gzip(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static String key(Long id, Long version, String variant) {
+        return id + ":" + (version != null ? version : 0L) + ":" + variant;
+    }
+
+    public static final class CachedResponse {
+        private final byte[] json;
+        private final byte[] gzip;
+
+        private CachedResponse(byte[] json, byte[] gzip) {
+            this.json = json;
+            this.gzip = gzip;
+        }
+
+        public byte[] getJson() {
+            return json;
+        }
+
+        // null, если тело слишком маленькое для сжатия
+        public byte[] getGzip() {
+            return gzip;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package kz.eospatial.GeoForestry.cache;
+
+import kz.eospatial.GeoForestry.dto.ForestryDto;
+import kz.eospatial.GeoForestry.events.ForestryChangedEvent;
+import kz.eospatial.GeoForestry.mappers.ForestryMapper;
+import kz.eospatial.GeoForestry.repo.ForestryRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Optional;
+
+@Component
+public class ForestryTokenCache {
+
+    private static final Logger log = LoggerFactory.getLogger(ForestryTokenCache.class);
+    private static final int EPOCH_STRIPES = 64;
+    private final ForestryRepository forestryRepository;
+    private final ForestryMapper forestryMapper;
+    private final BoundedCache<String, Entry> cache;
+    // Счётчики вытеснений по полосам хэша токена. Загрузка кладёт результат в кэш, только если
+    // за время SELECT вытеснений в её полосе не было: иначе она могла прочитать уже устаревшие данные
+    private final long[] evictionEpochs = new long[EPOCH_STRIPES];
+
+    public ForestryTokenCache(ForestryRepository forestryRepository,
+                              ForestryMapper forestryMapper,
+                              @Value("${forestry.cache.max-size:10000}") int maxSize,
+                              @Value("${forestry.cache.ttl-seconds:300}") long ttlSeconds) {
+        this.forestryRepository = forestryRepository;
+        this.forestryMapper = forestryMapper;
+        this.cache = new BoundedCache<>(maxSize, ttlSeconds * 1000);
+    }
+
+    // Одна запись обслуживает и проверку токена, и выдачу лесничества
+    public Optional<Entry> get(String token) {
+        if (token == null) {
+            return Optional.empty();
+        }
+        Entry cached = cache.get(token);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        long epoch = epoch(token);
+        // Один SELECT по проекции вместо загрузки управляемой сущности
+        Optional<Entry> loaded = forestryRepository.findViewByToken(token)
+                .map(view -> new Entry(forestryMapper.toDto(view), view.getTokenExpirationDate()));
+        loaded.ifPresent(entry -> fill(token, entry, epoch));
+        return loaded;
+    }
+
+    // Для подписанных токенов, уже сверенных с текущим поколением: загрузка по первичному ключу
+    public Optional<Entry> getById(String token, Long forestryId) {
+        Entry cached = cache.get(token);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        long epoch = epoch(token);
+        Optional<Entry> loaded = forestryRepository.findViewById(forestryId)
+                .map(view -> new Entry(forestryMapper.toDto(view), view.getTokenExpirationDate()));
+        loaded.ifPresent(entry -> fill(token, entry, epoch));
+        return loaded;
+    }
+
+    public void evict(String token) {
+        if (token != null) {
+            synchronized (evictionEpochs) {
+                evictionEpochs[stripe(token)]++;
+                cache.invalidate(token);
+            }
+        }
+    }
+
+    private long epoch(String token) {
+        synchronized (evictionEpochs) {
+            return evictionEpochs[stripe(token)];
+        }
+    }
+
+    // Проверка и запись под той же блокировкой, что и вытеснение: вытеснение всегда побеждает идущую загрузку
+    private void fill(String token, Entry entry, long epoch) {
+        synchronized (evictionEpochs) {
+            if (evictionEpochs[stripe(token)] == epoch) {
+                cache.put(token, entry);
+            }
+        }
+    }
+
+    private static int stripe(String token) {
+        return token.hashCode() & (EPOCH_STRIPES - 1);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onForestryChanged(ForestryChangedEvent event) {
+        log.debug("Evicting cached forestry with ID: {}", event.getForestryId());
+        evict(event.getToken());
+    }
+
+    public Map<String, Object> stats() {
+        return cache.stats();
+    }
+
+    public static final class Entry {
+        private final ForestryDto forestry;
+        private final LocalDate tokenExpirationDate;
+
+        public Entry(ForestryDto forestry, LocalDate tokenExpirationDate) {
+            this.forestry = forestry;
+            this.tokenExpirationDate = tokenExpirationDate;
+        }
+
+        public ForestryDto getForestry() {
+            return forestry;
+        }
+
+        public LocalDate getTokenExpirationDate() {
+            return tokenExpirationDate;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package kz.eospatial.GeoForestry.cache;
+
+import kz.eospatial.GeoForestry.repo.ForestryRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Фильтр Блума по всем выданным токенам лесничеств.
+// Ложноотрицательных ответов нет, поэтому токен, которого нет в фильтре, точно не существует.
+@Component
+public class TokenBloomFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenBloomFilter.class);
+    private final ForestryRepository forestryRepository;
+    private final int expectedInsertions;
+    private final double falsePositiveProbability;
+
+    private final Object lock = new Object();
+    private volatile Bits bits;
+    private List<String> pending;
+
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder passed = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+
+    public TokenBloomFilter(ForestryRepository forestryRepository,
+                            @Value("${forestry.token-filter.expected-insertions:100000}") int expectedInsertions,
+                            @Value("${forestry.token-filter.fpp:0.01}") double falsePositiveProbability) {
+        this.forestryRepository = forestryRepository;
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveProbability = falsePositiveProbability;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        synchronized (lock) {
+            // Токены, выданные во время перестроения, дописываются в новый фильтр перед заменой
+            pending = new ArrayList<>();
+        }
+        try {
+            List<String> tokens = forestryRepository.findAllTokens();
+            Bits next = Bits.create(Math.max(expectedInsertions, tokens.size() * 2), falsePositiveProbability);
+            for (String token : tokens) {
+                next.put(token);
+            }
+            synchronized (lock) {
+                pending.forEach(next::put);
+                bits = next;
+                pending = null;
+            }
+            log.info("Token filter built with {} tokens ({} bits, {} hash functions)",
+                    tokens.size(), next.numBits, next.hashFunctions);
+        } catch (RuntimeException e) {
+            synchronized (lock) {
+                pending = null;
+            }
+            log.error("Failed to build token filter, all tokens will be checked in the database", e);
+        }
+    }
+
+    public void add(String token) {
+        if (token == null) {
+            return;
+        }
+        synchronized (lock) {
+            if (bits != null) {
+                bits.put(token);
+            }
+            if (pending != null) {
+                pending.add(token);
+            }
+        }
+    }
+
+    // false - токена точно нет; true - токен, возможно, существует
+    public boolean mightContain(String token) {
+        Bits current = bits;
+        if (current == null) {
+            // Фильтр ещё не построен
+            return true;
+        }
+        if (token == null || !current.mightContain(token)) {
+            rejected.increment();
+            return false;
+        }
+        passed.increment();
+        return true;
+    }
+
+    // Вызывается, когда фильтр пропустил токен, но в базе его не оказалось
+    public void recordFalsePositive() {
+        falsePositives.increment();
+    }
+
+    public Map<String, Object> stats() {
+        long rejectedCount = rejected.sum();
+        long falsePositiveCount = falsePositives.sum();
+        long negatives = rejectedCount + falsePositiveCount;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("ready", bits != null);
+        stats.put("rejected", rejectedCount);
+        stats.put("passed", passed.sum());
+        stats.put("falsePositives", falsePositiveCount);
+        stats.put("falsePositiveRate", negatives == 0 ? 0.0 : (double) falsePositiveCount / negatives);
+        return stats;
+    }
+
+    private static final class Bits {
+        private final AtomicLongArray words;
+        private final long numBits;
+        private final int hashFunctions;
+
+        private Bits(long numBits, int hashFunctions) {
+            this.numBits = numBits;
+            this.hashFunctions = hashFunctions;
+            this.words = new AtomicLongArray((int) ((numBits + 63) >>> 6));
+        }
+
+        static Bits create(int expectedInsertions, double fpp) {
+            int n = Math.max(expectedInsertions, 1);
+            long numBits = (long) Math.ceil(-n * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+            numBits = Math.max(64, numBits);
+            int hashFunctions = Math.max(1, (int) Math.round((double) numBits / n * Math.log(2)));
+            return new Bits(numBits, hashFunctions);
+        }
+
+        void put(String token) {
+            long hash = hash64(token);
+            long h1 = mix(hash);
+            long h2 = mix(hash ^ 0x9E3779B97F4A7C15L) | 1;
+            for (int i = 0; i < hashFunctions; i++) {
+                long index = Long.remainderUnsigned(h1 + i * h2, numBits);
+                int word = (int) (index >>> 6);
+                long mask = 1L << index;
+                long current;
+                do {
+                    current = words.get(word);
+                    if ((current & mask) != 0) {
+                        break;
+                    }
+                } while (!words.compareAndSet(word, current, current | mask));
+            }
+        }
+
+        boolean mightContain(String token) {
+            long hash = hash64(token);
+            long h1 = mix(hash);
+            long h2 = mix(hash ^ 0x9E3779B97F4A7C15L) | 1;
+            for (int i = 0; i < hashFunctions; i++) {
+                long index = Long.remainderUnsigned(h1 + i * h2, numBits);
+                if ((words.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // FNV-1a по символам строки
+        private static long hash64(String value) {
+            long hash = 0xcbf29ce484222325L;
+            for (int i = 0; i < value.length(); i++) {
+                hash ^= value.charAt(i);
+                hash *= 0x100000001b3L;
+            }
+            return hash;
+        }
+
+        private static long mix(long z) {
+            z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+            z = (z ^ (z >>> 33)) * 0xc4ceb53fe1a85ec3L;
+            return z ^ (z >>> 33);
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package kz.eospatial.GeoForestry.cache;
+
+import jakarta.annotation.PostConstruct;
+import kz.eospatial.GeoForestry.events.ForestryGeometryChangedEvent;
+import kz.eospatial.GeoForestry.services.VectorTileService;
+import kz.eospatial.GeoForestry.utils.TileUtils;
+import kz.eospatial.GeoForestry.utils.TileUtils.Tile;
+import org.locationtech.jts.geom.Envelope;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+// Двухуровневый кэш векторных тайлов: LRU в памяти и ограниченный каталог на локальном диске
+@Component
+public class VectorTileCache {
+
+    private static final Logger log = LoggerFactory.getLogger(VectorTileCache.class);
+    // Кэш работает только в собственном подкаталоге настроенного пути, помеченном файлом-маркером
+    private static final String CACHE_DIRECTORY = "geoforestry-mvt-cache";
+    private static final String MARKER_FILE = ".geoforestry-tile-cache";
+    private static final Pattern NUMBER = Pattern.compile("\\d+");
+    private static final Pattern TILE_FILE = Pattern.compile("\\d+\\.mvt|tile-.*\\.tmp");
+
+    private final BoundedCache<Tile, byte[]> memory;
+    private volatile boolean diskEnabled;
+    private final Path directory;
+    private final int maxDiskTiles;
+    // Порядок доступа к тайлам на диске, самый старый удаляется первым.
+    // Его монитор защищает и запись тайлов в кэш, и инвалидацию: проверка поколения и запись атомарны
+    // относительно сброса, поэтому тайл, отрисованный по старой геометрии, не переживёт инвалидацию
+    private final LinkedHashMap<Tile, Boolean> diskIndex = new LinkedHashMap<>(16, 0.75f, true);
+    private final LongAdder diskHits = new LongAdder();
+    private final LongAdder diskEvictions = new LongAdder();
+    // Увеличивается при каждой инвалидации (под монитором diskIndex): тайл, отрисованный до неё, не попадёт в кэш
+    private final AtomicLong generation = new AtomicLong();
+
+    public VectorTileCache(@Value("${forestry.tiles.cache.max-size:5000}") int maxSize,
+                           @Value("${forestry.tiles.cache.ttl-seconds:3600}") long ttlSeconds,
+                           @Value("${forestry.tiles.disk-cache.enabled:true}") boolean diskEnabled,
+                           @Value("${forestry.tiles.disk-cache.directory:${java.io.tmpdir}/geoforestry-tiles}") String directory,
+                           @Value("${forestry.tiles.disk-cache.max-tiles:100000}") int maxDiskTiles) {
+        this.memory = new BoundedCache<>(maxSize, ttlSeconds * 1000);
+        this.diskEnabled = diskEnabled;
+        this.directory = Path.of(directory).resolve(CACHE_DIRECTORY);
+        this.maxDiskTiles = maxDiskTiles;
+    }
+
+    // Тайлы с прошлого запуска могли устареть, поэтому удаляются. Удаляются только файлы вида <z>/<x>/<y>.mvt
+    // в каталоге с маркером: чужой каталог с тем же именем не трогается, а дисковый кэш отключается
+    @PostConstruct
+    public void init() throws IOException {
+        if (!diskEnabled) {
+            return;
+        }
+        Path marker = directory.resolve(MARKER_FILE);
+        if (Files.exists(directory)) {
+            if (!Files.exists(marker)) {
+                log.warn("Directory {} exists but is not a tile cache, disk tile cache disabled", directory);
+                diskEnabled = false;
+                return;
+            }
+            clearTiles();
+        }
+        Files.createDirectories(directory);
+        if (!Files.exists(marker)) {
+            Files.createFile(marker);
+        }
+        log.info("Vector tile disk cache at {}", directory);
+    }
+
+    private void clearTiles() throws IOException {
+        for (Path z : numericDirectories(directory)) {
+            for (Path x : numericDirectories(z)) {
+                try (Stream<Path> files = Files.list(x)) {
+                    files.filter(file -> Files.isRegularFile(file)
+                                    && TILE_FILE.matcher(file.getFileName().toString()).matches())
+                            .forEach(this::deleteQuietly);
+                }
+                deleteIfEmpty(x);
+            }
+            deleteIfEmpty(z);
+        }
+    }
+
+    private static List<Path> numericDirectories(Path parent) throws IOException {
+        try (Stream<Path> children = Files.list(parent)) {
+            return children.filter(Files::isDirectory)
+                    .filter(child -> NUMBER.matcher(child.getFileName().toString()).matches())
+                    .toList();
+        }
+    }
+
+    private void deleteIfEmpty(Path directory) throws IOException {
+        try (Stream<Path> children = Files.list(directory)) {
+            if (children.findAny().isPresent()) {
+                return;
+            }
+        }
+        deleteQuietly(directory);
+    }
+
+    public byte[] get(Tile tile) {
+        byte[] tileData = memory.get(tile);
+        if (tileData != null || !diskEnabled) {
+            return tileData;
+        }
+        long readAtGeneration = generation.get();
+        synchronized (diskIndex) {
+            if (diskIndex.get(tile) == null) {
+                return null;
+            }
+        }
+        try {
+            tileData = Files.readAllBytes(path(tile));
+        } catch (IOException e) {
+            log.warn("Unable to read cached tile {}", tile, e);
+            return null;
+        }
+        diskHits.increment();
+        // Файл мог быть прочитан до инвалидации: в память он попадает, только если её не было
+        synchronized (diskIndex) {
+            if (generation.get() == readAtGeneration) {
+                memory.put(tile, tileData);
+            }
+        }
+        return tileData;
+    }
+
+    public long generation() {
+        return generation.get();
+    }
+
+    public void put(Tile tile, byte[] tileData, long renderedAtGeneration) {
+        if (generation.get() != renderedAtGeneration) {
+            return;
+        }
+        if (!diskEnabled) {
+            synchronized (diskIndex) {
+                if (generation.get() == renderedAtGeneration) {
+                    memory.put(tile, tileData);
+                }
+            }
+            return;
+        }
+        // Содержимое пишется во временный файл без блокировки; под ней только проверка поколения и переименование
+        Path path = path(tile);
+        Path temp;
+        try {
+            Files.createDirectories(path.getParent());
+            temp = Files.createTempFile(path.getParent(), "tile-", ".tmp");
+            Files.write(temp, tileData);
+        } catch (IOException e) {
+            log.warn("Unable to write tile {} to disk cache", tile, e);
+            return;
+        }
+        int evicted = 0;
+        synchronized (diskIndex) {
+            if (generation.get() != renderedAtGeneration) {
+                deleteQuietly(temp);
+                return;
+            }
+            memory.put(tile, tileData);
+            try {
+                // Атомарное переименование: параллельный читатель не увидит половину тайла
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                log.warn("Unable to write tile {} to disk cache", tile, e);
+                deleteQuietly(temp);
+                return;
+            }
+            diskIndex.put(tile, Boolean.TRUE);
+            Iterator<Tile> iterator = diskIndex.keySet().iterator();
+            while (diskIndex.size() > maxDiskTiles && iterator.hasNext()) {
+                deleteQuietly(path(iterator.next()));
+                iterator.remove();
+                evicted++;
+            }
+        }
+        diskEvictions.add(evicted);
+    }
+
+    // Сбрасываются только тайлы, пересекающие старый или новый охват геометрии
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onGeometryChanged(ForestryGeometryChangedEvent event) {
+        Predicate<Tile> affected = tile -> {
+            Envelope tileEnvelope = TileUtils.tileEnvelope(tile, VectorTileService.BUFFER_RATIO);
+            return intersects(tileEnvelope, event.getPreviousEnvelope())
+                    || intersects(tileEnvelope, event.getCurrentEnvelope());
+        };
+        int removed = 0;
+        // Файлы удаляются под той же блокировкой: иначе удаление могло бы стереть тайл, записанный уже после сброса
+        synchronized (diskIndex) {
+            generation.incrementAndGet();
+            memory.invalidateIf(affected);
+            if (!diskEnabled) {
+                return;
+            }
+            Iterator<Tile> iterator = diskIndex.keySet().iterator();
+            while (iterator.hasNext()) {
+                Tile tile = iterator.next();
+                if (affected.test(tile)) {
+                    deleteQuietly(path(tile));
+                    iterator.remove();
+                    removed++;
+                }
+            }
+        }
+        log.info("Invalidated {} disk tiles for forestry ID: {}", removed, event.getForestryId());
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>(memory.stats());
+        synchronized (diskIndex) {
+            stats.put("diskSize", diskIndex.size());
+        }
+        stats.put("diskHits", diskHits.sum());
+        stats.put("diskEvictions", diskEvictions.sum());
+        return stats;
+    }
+
+    private static boolean intersects(Envelope tileEnvelope, Envelope geometryEnvelope) {
+        return geometryEnvelope != null && tileEnvelope.intersects(geometryEnvelope);
+    }
+
+    private Path path(Tile tile) {
+        return directory.resolve(Integer.toString(tile.getZ()))
+                .resolve(Integer.toString(tile.getX()))
+                .resolve(tile.getY() + ".mvt");
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Unable to delete cached tile file {}", path, e);
+        }
+    }
+}
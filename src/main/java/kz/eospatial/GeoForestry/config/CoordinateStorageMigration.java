@@ -0,0 +1,113 @@
+package kz.eospatial.GeoForestry.config;
+
+import kz.eospatial.GeoForestry.models.CoordinateArray;
+import kz.eospatial.GeoForestry.models.CoordinateArrayCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// Перенос координат из старых текстовых колонок boundaries/center ("lat,lon;lat,lon")
+// в двоичные boundaries_packed/center_packed. Колонки создаёт Hibernate (ddl-auto),
+// здесь только заполняются строки, которые ещё не перенесены. Старые колонки не удаляются.
+@Component
+@Order(0)
+public class CoordinateStorageMigration implements CommandLineRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(CoordinateStorageMigration.class);
+
+    private static final int BATCH_SIZE = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public CoordinateStorageMigration(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void run(String... args) {
+        try {
+            if (!hasLegacyColumns()) {
+                return;
+            }
+            int migrated = migrate();
+            if (migrated > 0) {
+                log.info("Migrated coordinates of {} forestries to packed storage", migrated);
+            }
+        } catch (DataAccessException e) {
+            log.warn("Unable to migrate forestry coordinates to packed storage", e);
+        }
+    }
+
+    private boolean hasLegacyColumns() {
+        Integer count = jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM information_schema.columns " +
+                        "WHERE table_name = 'forestry' AND column_name IN ('boundaries', 'center')",
+                Integer.class);
+        return count != null && count == 2;
+    }
+
+    // Keyset-проход по ID, чтобы не держать всю таблицу в памяти
+    private int migrate() {
+        int migrated = 0;
+        long lastId = 0;
+        while (true) {
+            List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                    "SELECT id, boundaries, center FROM forestry " +
+                            "WHERE id > ? AND boundaries_packed IS NULL AND center_packed IS NULL " +
+                            "AND (boundaries IS NOT NULL OR center IS NOT NULL) " +
+                            "ORDER BY id LIMIT ?",
+                    lastId, BATCH_SIZE);
+            if (rows.isEmpty()) {
+                return migrated;
+            }
+
+            List<Object[]> updates = new ArrayList<>(rows.size());
+            for (Map<String, Object> row : rows) {
+                long id = ((Number) row.get("id")).longValue();
+                lastId = id;
+                try {
+                    updates.add(new Object[]{
+                            encode((String) row.get("boundaries")),
+                            encode((String) row.get("center")),
+                            id});
+                } catch (IllegalArgumentException e) {
+                    log.warn("Skipping forestry {}: unreadable legacy coordinates ({})", id, e.getMessage());
+                }
+            }
+            jdbcTemplate.batchUpdate(
+                    "UPDATE forestry SET boundaries_packed = ?, center_packed = ? WHERE id = ?", updates);
+            migrated += updates.size();
+        }
+    }
+
+    private static byte[] encode(String legacy) {
+        CoordinateArray coordinates = parseLegacy(legacy);
+        return coordinates == null ? null : CoordinateArrayCodec.encode(coordinates);
+    }
+
+    // Старый формат ForestryMapper: "lat,lon" через ';'
+    static CoordinateArray parseLegacy(String legacy) {
+        if (legacy == null || legacy.isEmpty()) {
+            return null;
+        }
+        String[] points = legacy.split(";");
+        double[] latLon = new double[points.length * 2];
+        for (int i = 0; i < points.length; i++) {
+            String[] pair = points[i].split(",");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Invalid coordinate pair '" + points[i] + "'");
+            }
+            latLon[i * 2] = Double.parseDouble(pair[0].trim());
+            latLon[i * 2 + 1] = Double.parseDouble(pair[1].trim());
+        }
+        return CoordinateArray.of(latLon);
+    }
+}
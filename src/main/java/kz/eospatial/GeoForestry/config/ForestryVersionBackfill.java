@@ -0,0 +1,35 @@
+package kz.eospatial.GeoForestry.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+// Строки, созданные до появления @Version, имеют version = NULL; Hibernate не может их версионировать
+@Component
+@Order(0)
+public class ForestryVersionBackfill implements CommandLineRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(ForestryVersionBackfill.class);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ForestryVersionBackfill(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void run(String... args) {
+        try {
+            int updated = jdbcTemplate.update("UPDATE forestry SET version = 0 WHERE version IS NULL");
+            if (updated > 0) {
+                log.info("Initialized version of {} forestries", updated);
+            }
+        } catch (DataAccessException e) {
+            log.warn("Unable to initialize forestry versions", e);
+        }
+    }
+}
@@ -45,6 +45,8 @@ public class SecurityConfiguration {
                     corsConfiguration.setAllowedOriginPatterns(List.of("*"));
                     corsConfiguration.setAllowedMethods(List.of("GET", "POST", "PUT", "PATCH", "DELETE", "OPTIONS"));
                     corsConfiguration.setAllowedHeaders(List.of("*"));
+                    // Курсор следующей страницы списка лесничеств должен быть виден браузеру
+                    corsConfiguration.setExposedHeaders(List.of("X-Next-Cursor"));
                     corsConfiguration.setAllowCredentials(true);
                     return corsConfiguration;
                 }))
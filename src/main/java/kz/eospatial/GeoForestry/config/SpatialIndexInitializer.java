@@ -0,0 +1,44 @@
+package kz.eospatial.GeoForestry.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+// GiST-индексы по геометриям и уникальность forestry_id. Hibernate (ddl-auto) создаёт только таблицы,
+// а тип индекса задать не может и не добавит ограничение, пока в таблице есть дубликаты.
+@Component
+public class SpatialIndexInitializer implements CommandLineRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(SpatialIndexInitializer.class);
+
+    private static final String[] STATEMENTS = {
+            // Дубликаты, оставшиеся от параллельных загрузок до появления ограничения: сохраняется последняя запись
+            "DELETE FROM forestry_geometries a USING forestry_geometries b " +
+                    "WHERE a.forestry_id = b.forestry_id AND a.id < b.id",
+            // Нужен для INSERT ... ON CONFLICT (forestry_id)
+            "CREATE UNIQUE INDEX IF NOT EXISTS forestry_geometries_forestry_id_key ON forestry_geometries (forestry_id)",
+            "CREATE INDEX IF NOT EXISTS forestry_geometries_geom_gist ON forestry_geometries USING GIST (geom)",
+            "CREATE INDEX IF NOT EXISTS forestry_geometry_levels_geom_gist ON forestry_geometry_levels USING GIST (geom)"
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public SpatialIndexInitializer(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void run(String... args) {
+        for (String statement : STATEMENTS) {
+            try {
+                jdbcTemplate.execute(statement);
+            } catch (DataAccessException e) {
+                log.warn("Unable to apply index statement: {}", statement, e);
+            }
+        }
+        log.info("Spatial indexes checked");
+    }
+}
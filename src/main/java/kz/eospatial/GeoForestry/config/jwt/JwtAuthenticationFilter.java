@@ -8,6 +8,7 @@ import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -34,6 +35,13 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     @Autowired
     private UserDetailsService userDetailsService;
 
+    @Autowired
+    private TokenWatermarkRegistry tokenWatermarkRegistry;
+
+    // Пользователь строится из claims токена без запроса к таблице users
+    @Value("${jwt.claims-only:false}")
+    private boolean claimsOnly;
+
     @Autowired
     public void setJwtService(JwtService jwtService) {
         this.jwtService = jwtService;
@@ -61,13 +69,21 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         String jwt = authHeader.substring(BEARER_PREFIX.length());
         try {
-            String username = jwtService.extractUserName(jwt);
+            VerifiedJwt verifiedJwt = jwtService.verify(jwt);
+            String username = verifiedJwt.getSubject();
             logger.info("Attempting authentication for token user: {}", username);
 
             if (StringUtils.hasText(username) && SecurityContextHolder.getContext().getAuthentication() == null) {
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+                if (tokenWatermarkRegistry.isRevoked(username, verifiedJwt.getIssuedAt())) {
+                    logger.warn("Rejected token issued before the last password change of user: {}", username);
+                    filterChain.doFilter(request, response);
+                    return;
+                }
+                UserDetails userDetails = claimsOnly
+                        ? verifiedJwt.toUserDetails()
+                        : userDetailsService.loadUserByUsername(username);
 
-                if (jwtService.isTokenValid(jwt, userDetails)) {
+                if (jwtService.isTokenValid(verifiedJwt, userDetails)) {
                     UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
                             userDetails, null, userDetails.getAuthorities());
 
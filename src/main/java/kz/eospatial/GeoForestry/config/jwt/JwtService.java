@@ -1,20 +1,24 @@
 package kz.eospatial.GeoForestry.config.jwt;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.AuthorityUtils;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
 import java.security.Key;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.function.Function;
 import io.jsonwebtoken.io.Decoders;
 
 @Service
@@ -28,8 +32,52 @@ public class JwtService {
     @Value("${jwt.token.expiry}")
     private long tokenExpiry;
 
+    // Ключ и парсер потокобезопасны, создаются один раз
+    private Key signingKey;
+    private JwtParser jwtParser;
+
+    private final VerifiedJwtCache verifiedJwtCache;
+
+    public JwtService(VerifiedJwtCache verifiedJwtCache) {
+        this.verifiedJwtCache = verifiedJwtCache;
+    }
+
+    @PostConstruct
+    public void init() {
+        byte[] keyBytes = Decoders.BASE64.decode(jwtSigningKey);
+        signingKey = Keys.hmacShaKeyFor(keyBytes);
+        jwtParser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
+    }
+
+    // Один разбор и одна проверка подписи на токен, повторные предъявления обслуживаются из кэша
+    public VerifiedJwt verify(String token) {
+        String digest = verifiedJwtCache.digest(token);
+        VerifiedJwt cached = verifiedJwtCache.get(digest);
+        if (cached != null && !cached.isExpired()) {
+            return cached;
+        }
+        Claims claims = extractAllClaims(token);
+        String roles = claims.get("roles", String.class);
+        List<GrantedAuthority> authorities = roles == null || roles.isEmpty()
+                ? Collections.emptyList()
+                : AuthorityUtils.commaSeparatedStringToAuthorityList(roles);
+        VerifiedJwt verified = new VerifiedJwt(claims.getSubject(), authorities, claims.getIssuedAt(), claims.getExpiration());
+        verifiedJwtCache.put(digest, verified);
+        return verified;
+    }
+
     public String extractUserName(String token) {
-        return extractClaim(token, Claims::getSubject);
+        return verify(token).getSubject();
+    }
+
+    public Date extractIssuedAt(String token) {
+        return verify(token).getIssuedAt();
+    }
+
+    public UserDetails extractUserDetails(String token) {
+        return verify(token).toUserDetails();
     }
 
     public String generateToken(UserDetails userDetails) {
@@ -41,17 +89,15 @@ public class JwtService {
 
     public boolean isTokenValid(String token, UserDetails userDetails) {
         try {
-            final String username = extractUserName(token);
-            return username.equals(userDetails.getUsername()) && !isTokenExpired(token);
+            return isTokenValid(verify(token), userDetails);
         } catch (Exception e) {
             logger.error("Error checking token validity: {}", e.getMessage());
             return false;
         }
     }
 
-    private <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
-        return claimsResolver.apply(claims);
+    public boolean isTokenValid(VerifiedJwt jwt, UserDetails userDetails) {
+        return jwt.getSubject() != null && jwt.getSubject().equals(userDetails.getUsername()) && !jwt.isExpired();
     }
 
     private String generateToken(Map<String, Object> claims, String subject) {
@@ -60,23 +106,13 @@ public class JwtService {
                 .setSubject(subject)
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + tokenExpiry))
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
-    }
-
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
-    }
-
     private Claims extractAllClaims(String token) {
         try {
-            return Jwts.parserBuilder()
-                    .setSigningKey(getSigningKey())
-                    .build()
+            return jwtParser
                     .parseClaimsJws(token)
                     .getBody();
         } catch (Exception e) {
@@ -84,10 +120,4 @@ public class JwtService {
             throw e;
         }
     }
-
-    private Key getSigningKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(jwtSigningKey);
-        return Keys.hmacShaKeyFor(keyBytes);
-    }
 }
-
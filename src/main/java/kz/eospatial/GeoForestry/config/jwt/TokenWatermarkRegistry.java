@@ -0,0 +1,83 @@
+package kz.eospatial.GeoForestry.config.jwt;
+
+import kz.eospatial.GeoForestry.events.PasswordChangedEvent;
+import kz.eospatial.GeoForestry.user.UserRepository;
+import kz.eospatial.GeoForestry.user.Users;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Хранит момент последней смены пароля каждого пользователя (с точностью до секунды).
+// JWT, выпущенные в более раннюю секунду, считаются отозванными.
+// Значения перечитываются из users.password_changed_at не реже раза в ttl-seconds,
+// поэтому смена пароля на одном экземпляре сервиса доходит до остальных с этой задержкой.
+@Component
+public class TokenWatermarkRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenWatermarkRegistry.class);
+
+    private final UserRepository userRepository;
+    private final long ttlMillis;
+    private final Map<String, Watermark> watermarks = new ConcurrentHashMap<>();
+
+    public TokenWatermarkRegistry(UserRepository userRepository,
+                                  @Value("${jwt.watermark.ttl-seconds:60}") long ttlSeconds) {
+        this.userRepository = userRepository;
+        this.ttlMillis = ttlSeconds * 1000;
+    }
+
+    // Только после фиксации: откат смены пароля не должен отзывать токены
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onPasswordChanged(PasswordChangedEvent event) {
+        update(event.getUsername(), event.getChangedAt(), System.currentTimeMillis());
+        logger.info("Token watermark moved for user: {}", event.getUsername());
+    }
+
+    // iat в JWT хранится с точностью до секунды. Токен той же секунды, что и смена пароля, принимается:
+    // иначе повторный вход сразу после смены пароля давал бы отклоняемый токен
+    public boolean isRevoked(String username, Date issuedAt) {
+        Instant watermark = watermark(username);
+        if (watermark == null) {
+            return false;
+        }
+        return issuedAt == null || issuedAt.toInstant().getEpochSecond() < watermark.getEpochSecond();
+    }
+
+    private Instant watermark(String username) {
+        long now = System.currentTimeMillis();
+        Watermark cached = watermarks.get(username);
+        if (cached != null && now - cached.loadedAt < ttlMillis) {
+            return cached.value;
+        }
+        Instant stored = userRepository.findByUsername(username)
+                .map(Users::getPasswordChangedAt)
+                .orElse(null);
+        return update(username, stored, now).value;
+    }
+
+    // Отметка только сдвигается вперёд: перечитанное до фиксации старое значение не отменит новую смену пароля
+    private Watermark update(String username, Instant value, long loadedAt) {
+        return watermarks.merge(username, new Watermark(value, loadedAt), (previous, loaded) ->
+                previous.value != null && (loaded.value == null || previous.value.isAfter(loaded.value))
+                        ? new Watermark(previous.value, loaded.loadedAt)
+                        : loaded);
+    }
+
+    private static final class Watermark {
+        private final Instant value;
+        private final long loadedAt;
+
+        private Watermark(Instant value, long loadedAt) {
+            this.value = value;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
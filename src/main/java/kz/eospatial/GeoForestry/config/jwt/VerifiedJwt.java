@@ -0,0 +1,49 @@
+package kz.eospatial.GeoForestry.config.jwt;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Date;
+import java.util.List;
+
+// Результат однократного разбора и проверки подписи JWT
+public final class VerifiedJwt {
+
+    private final String subject;
+    private final List<GrantedAuthority> authorities;
+    private final Date issuedAt;
+    private final Date expiration;
+
+    public VerifiedJwt(String subject, List<GrantedAuthority> authorities, Date issuedAt, Date expiration) {
+        this.subject = subject;
+        this.authorities = List.copyOf(authorities);
+        this.issuedAt = issuedAt != null ? new Date(issuedAt.getTime()) : null;
+        this.expiration = expiration != null ? new Date(expiration.getTime()) : null;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public List<GrantedAuthority> getAuthorities() {
+        return authorities;
+    }
+
+    public Date getIssuedAt() {
+        return issuedAt != null ? new Date(issuedAt.getTime()) : null;
+    }
+
+    public Date getExpiration() {
+        return expiration != null ? new Date(expiration.getTime()) : null;
+    }
+
+    public boolean isExpired() {
+        return expiration != null && expiration.getTime() < System.currentTimeMillis();
+    }
+
+    // Пользователь, восстановленный из подписанных claims без обращения к базе
+    public UserDetails toUserDetails() {
+        return new User(subject, "", authorities);
+    }
+}
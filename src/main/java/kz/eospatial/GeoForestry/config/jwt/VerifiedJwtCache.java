@@ -0,0 +1,51 @@
+package kz.eospatial.GeoForestry.config.jwt;
+
+import kz.eospatial.GeoForestry.cache.BoundedCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Map;
+
+// Кэш уже проверенных JWT. Ключ - SHA-256 токена, сам токен в памяти не хранится.
+// Запись удаляется в момент истечения срока действия токена.
+@Component
+public class VerifiedJwtCache {
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    });
+
+    private final BoundedCache<String, VerifiedJwt> cache;
+
+    public VerifiedJwtCache(@Value("${jwt.cache.max-size:1000}") int maxSize,
+                            @Value("${jwt.cache.ttl-seconds:86400}") long ttlSeconds) {
+        this.cache = new BoundedCache<>(maxSize, ttlSeconds * 1000);
+    }
+
+    public VerifiedJwt get(String digest) {
+        return cache.get(digest);
+    }
+
+    public void put(String digest, VerifiedJwt jwt) {
+        if (jwt.getExpiration() != null) {
+            cache.put(digest, jwt, jwt.getExpiration().getTime());
+        }
+    }
+
+    public String digest(String token) {
+        byte[] hash = SHA_256.get().digest(token.getBytes(StandardCharsets.US_ASCII));
+        return Base64.getEncoder().encodeToString(hash);
+    }
+
+    public Map<String, Object> stats() {
+        return cache.stats();
+    }
+}
@@ -12,6 +12,7 @@ import kz.eospatial.GeoForestry.user.Users;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -20,6 +21,7 @@ import org.springframework.web.multipart.MultipartFile;
 
 import java.time.LocalDate;
 import java.util.Map;
+import java.util.UUID;
 
 @RestController
 @RequestMapping("/api/admin")
@@ -39,13 +41,14 @@ public class AdminController {
     @PostMapping("/create")
     public ResponseEntity<Map<String, Object>> createForestry(
             @RequestParam("forestry") String forestryDtoJson,
-            @RequestParam(value = "geojson", required = false) MultipartFile geoJsonFile) {
+            @RequestParam(value = "geojson", required = false) MultipartFile geoJsonFile,
+            @RequestParam(value = "async", defaultValue = "false") boolean async) {
         try {
             // Преобразуем JSON в ForestryDto
             ForestryDto forestryDto = objectMapper.readValue(forestryDtoJson, ForestryDto.class);
 
             // Создаем лесничество через фасад
-            ResponseEntity<Map<String, Object>> response = adminFacade.addForestry(forestryDto, geoJsonFile);
+            ResponseEntity<Map<String, Object>> response = adminFacade.addForestry(forestryDto, geoJsonFile, async);
 
             // Возвращаем результат с DTO и токеном в заголовке
             return response;
@@ -60,14 +63,15 @@ public class AdminController {
     public ResponseEntity<Map<String, Object>> updateForestry(
             @PathVariable Long id,
             @RequestParam("forestry") String forestryDtoJson,
-            @RequestParam(value = "geojson", required = false) MultipartFile geoJsonFile) {
+            @RequestParam(value = "geojson", required = false) MultipartFile geoJsonFile,
+            @RequestParam(value = "async", defaultValue = "false") boolean async) {
         try {
             // Преобразуем JSON в ForestryDto
             ForestryDto forestryDto = objectMapper.readValue(forestryDtoJson, ForestryDto.class);
             log.info(forestryDto.toString());
 
             // Вызов фасада для обновления лесничества
-            ResponseEntity<Map<String, Object>> response = adminFacade.updateForestry(id, forestryDto, geoJsonFile);
+            ResponseEntity<Map<String, Object>> response = adminFacade.updateForestry(id, forestryDto, geoJsonFile, async);
             return response;
         } catch (Exception e) {
             log.error("Error updating forestry", e);
@@ -83,6 +87,19 @@ public class AdminController {
         return adminFacade.addGeoJsonToForestry(id, geoJsonFile);
     }
 
+    // Фоновая загрузка GeoJSON: сразу возвращает идентификатор задачи
+    @PostMapping("/forestries/{id}/geojson/async")
+    public ResponseEntity<?> submitGeoJsonIngestion(
+            @PathVariable Long id,
+            @RequestParam("geojson") MultipartFile geoJsonFile) {
+        return adminFacade.submitGeoJsonIngestion(id, geoJsonFile);
+    }
+
+    @GetMapping("/ingestion-jobs/{jobId}")
+    public ResponseEntity<?> getIngestionJob(@PathVariable UUID jobId) {
+        return adminFacade.getIngestionJob(jobId);
+    }
+
     @DeleteMapping("/forestries/{id}/geojson")
     public ResponseEntity<?> deleteForestryGeoJson(@PathVariable Long id) {
         return adminFacade.deleteForestryGeoJson(id);
@@ -98,9 +115,28 @@ public class AdminController {
         }
     }
 
+    // Без cursor и limit — полный список, как раньше.
+    // Keyset-пагинация: cursor — ID последнего лесничества предыдущей страницы, limit — размер страницы.
+    // С Accept: application/x-ndjson отдаётся весь список потоком
     @GetMapping("/forestries")
-    public ResponseEntity<?> getAllForestries() {
-        return adminFacade.getAllForestries();
+    public ResponseEntity<?> getForestries(
+            @RequestParam(value = "cursor", required = false) Long cursor,
+            @RequestParam(value = "limit", required = false) Integer limit,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        if (accept != null && accept.contains("application/x-ndjson")) {
+            return adminFacade.streamAllForestries();
+        }
+        if (cursor == null && limit == null) {
+            return adminFacade.getAllForestries();
+        }
+        return adminFacade.getForestriesPage(cursor, limit);
+    }
+
+    // Лесничества в видимой области карты (вместо полного списка с фильтрацией на клиенте)
+    @GetMapping("/forestries/bbox")
+    public ResponseEntity<?> getForestriesInBbox(@RequestParam double minLon, @RequestParam double minLat,
+                                                 @RequestParam double maxLon, @RequestParam double maxLat) {
+        return adminFacade.getForestriesInBbox(minLon, minLat, maxLon, maxLat);
     }
 
     @GetMapping("/forestries/id/{id}")
@@ -151,4 +187,8 @@ public class AdminController {
         return adminFacade.getForestriesByTokenExpirationDate(date, startDate, endDate);
     }
 
+    @GetMapping("/metrics")
+    public ResponseEntity<?> getMetrics() {
+        return adminFacade.getMetrics();
+    }
 }
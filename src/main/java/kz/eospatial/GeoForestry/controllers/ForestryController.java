@@ -3,12 +3,15 @@ package kz.eospatial.GeoForestry.controllers;
 import kz.eospatial.GeoForestry.facades.ForestryFacade;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 
 
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 @RestController
@@ -24,7 +27,23 @@ public class ForestryController {
     }
 
     @GetMapping("/{token}")
-    public ResponseEntity<?> getForestryByToken(@PathVariable String token) {
-        return forestryFacade.getForestryByToken(token);
+    public ResponseEntity<?> getForestryByToken(
+            @PathVariable String token,
+            @RequestParam(value = "encoding", required = false) String encoding,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return forestryFacade.getForestryByToken(token, encoding, accept, acceptEncoding);
+    }
+
+    // GeoJSON границ лесничества; zoom выбирает упрощённый уровень детализации.
+    // encoding=polyline|quantized (или соответствующий Accept) - компактные координаты
+    @GetMapping("/{token}/geometry")
+    public ResponseEntity<?> getForestryGeometry(
+            @PathVariable String token,
+            @RequestParam(value = "zoom", required = false) Integer zoom,
+            @RequestParam(value = "encoding", required = false) String encoding,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return forestryFacade.getForestryGeometry(token, zoom, encoding, accept, acceptEncoding);
     }
 }
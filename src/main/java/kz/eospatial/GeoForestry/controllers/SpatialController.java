@@ -0,0 +1,49 @@
+package kz.eospatial.GeoForestry.controllers;
+
+import kz.eospatial.GeoForestry.facades.SpatialFacade;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.InputStream;
+
+@RestController
+@RequestMapping("/api/spatial")
+public class SpatialController {
+
+    private final SpatialFacade spatialFacade;
+
+    public SpatialController(SpatialFacade spatialFacade) {
+        this.spatialFacade = spatialFacade;
+    }
+
+    // В каком лесничестве находится точка (поиск по индексу в памяти, без запроса к базе)
+    @GetMapping("/lookup")
+    public ResponseEntity<?> lookup(@RequestParam double lat, @RequestParam double lon,
+                                    @RequestParam(value = "index", defaultValue = "grid") String index) {
+        return spatialFacade.lookup(lat, lon, index);
+    }
+
+    // k ближайших лесничеств с расстоянием в метрах
+    @GetMapping("/nearest")
+    public ResponseEntity<?> nearest(@RequestParam double lat, @RequestParam double lon,
+                                     @RequestParam(value = "k", defaultValue = "5") int k) {
+        return spatialFacade.nearest(lat, lon, k);
+    }
+
+    // Пакетная классификация трека: тело — плоский массив [lon, lat, lon, lat, ...]
+    @PostMapping("/classify")
+    public ResponseEntity<?> classify(@RequestBody double[] lonLat) {
+        return spatialFacade.classify(lonLat);
+    }
+
+    // Лесничества, которых касается контур пожара или вырубки, с площадью пересечения; тело — GeoJSON
+    @PostMapping("/intersections")
+    public ResponseEntity<?> intersect(InputStream geoJson) {
+        return spatialFacade.intersect(geoJson);
+    }
+}
@@ -0,0 +1,25 @@
+package kz.eospatial.GeoForestry.controllers;
+
+import kz.eospatial.GeoForestry.facades.TileFacade;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/tiles")
+public class TileController {
+
+    private final TileFacade tileFacade;
+
+    public TileController(TileFacade tileFacade) {
+        this.tileFacade = tileFacade;
+    }
+
+    // Векторный тайл (Mapbox Vector Tile) с контурами всех лесничеств
+    @GetMapping("/{z}/{x}/{y}.mvt")
+    public ResponseEntity<?> getTile(@PathVariable int z, @PathVariable int x, @PathVariable int y) {
+        return tileFacade.getTile(z, x, y);
+    }
+}
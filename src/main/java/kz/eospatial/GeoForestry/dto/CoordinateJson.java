@@ -0,0 +1,191 @@
+package kz.eospatial.GeoForestry.dto;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import kz.eospatial.GeoForestry.models.CoordinateArray;
+import kz.eospatial.GeoForestry.utils.CompactCoordinates;
+
+import java.io.IOException;
+
+// JSON для CoordinateArray в прежнем формате GeoCoordinate:
+// список - [{"latitude":..,"longitude":..}, ...], точка - {"latitude":..,"longitude":..}.
+// Чтение и запись идут напрямую через JsonParser/JsonGenerator, без объектов на каждую вершину.
+public final class CoordinateJson {
+
+    // Атрибут ObjectWriter с точностью компактных форматов (число знаков после запятой)
+    public static final String PRECISION_ATTRIBUTE = "coordinatePrecision";
+
+    private static final String LATITUDE = "latitude";
+    private static final String LONGITUDE = "longitude";
+
+    private CoordinateJson() {
+    }
+
+    public static class ListSerializer extends StdSerializer<CoordinateArray> {
+
+        public ListSerializer() {
+            super(CoordinateArray.class);
+        }
+
+        @Override
+        public void serialize(CoordinateArray value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartArray(value, value.size());
+            for (int i = 0; i < value.size(); i++) {
+                writePoint(gen, value, i);
+            }
+            gen.writeEndArray();
+        }
+    }
+
+    public static class PointSerializer extends StdSerializer<CoordinateArray> {
+
+        public PointSerializer() {
+            super(CoordinateArray.class);
+        }
+
+        @Override
+        public void serialize(CoordinateArray value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            if (value.isEmpty()) {
+                gen.writeNull();
+            } else {
+                writePoint(gen, value, 0);
+            }
+        }
+    }
+
+    // Границы строкой Encoded Polyline (lat,lon)
+    public static class PolylineSerializer extends StdSerializer<CoordinateArray> {
+
+        public PolylineSerializer() {
+            super(CoordinateArray.class);
+        }
+
+        @Override
+        public void serialize(CoordinateArray value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeString(CompactCoordinates.polyline(value, precision(provider)));
+        }
+    }
+
+    // Границы плоским массивом квантованных разностей [lat0, lon0, dLat1, dLon1, ...]
+    public static class QuantizedSerializer extends StdSerializer<CoordinateArray> {
+
+        public QuantizedSerializer() {
+            super(CoordinateArray.class);
+        }
+
+        @Override
+        public void serialize(CoordinateArray value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            CompactCoordinates.writeQuantized(gen, value, precision(provider));
+        }
+    }
+
+    // Mix-in для ForestryDto: остальные поля DTO сериализуются как обычно
+    public abstract static class PolylineBoundaries {
+        @JsonSerialize(using = PolylineSerializer.class)
+        private CoordinateArray boundaries;
+    }
+
+    public abstract static class QuantizedBoundaries {
+        @JsonSerialize(using = QuantizedSerializer.class)
+        private CoordinateArray boundaries;
+    }
+
+    public static class ListDeserializer extends StdDeserializer<CoordinateArray> {
+
+        public ListDeserializer() {
+            super(CoordinateArray.class);
+        }
+
+        @Override
+        public CoordinateArray deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            if (!p.isExpectedStartArrayToken()) {
+                return (CoordinateArray) ctxt.handleUnexpectedToken(CoordinateArray.class, p);
+            }
+            CoordinateArray.Builder builder = CoordinateArray.builder(64);
+            JsonToken token;
+            while ((token = p.nextToken()) != JsonToken.END_ARRAY) {
+                if (token != JsonToken.START_OBJECT) {
+                    return (CoordinateArray) ctxt.handleUnexpectedToken(CoordinateArray.class, p);
+                }
+                readPoint(p, ctxt, builder);
+            }
+            return builder.build();
+        }
+    }
+
+    public static class PointDeserializer extends StdDeserializer<CoordinateArray> {
+
+        public PointDeserializer() {
+            super(CoordinateArray.class);
+        }
+
+        @Override
+        public CoordinateArray deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            if (!p.isExpectedStartObjectToken()) {
+                return (CoordinateArray) ctxt.handleUnexpectedToken(CoordinateArray.class, p);
+            }
+            CoordinateArray.Builder builder = CoordinateArray.builder(1);
+            readPoint(p, ctxt, builder);
+            return builder.build();
+        }
+    }
+
+    private static int precision(SerializerProvider provider) {
+        Object precision = provider.getAttribute(PRECISION_ATTRIBUTE);
+        if (!(precision instanceof Integer)) {
+            throw new IllegalStateException("Coordinate precision is not set on the ObjectWriter");
+        }
+        return (Integer) precision;
+    }
+
+    private static void writePoint(JsonGenerator gen, CoordinateArray value, int index) throws IOException {
+        gen.writeStartObject();
+        gen.writeNumberField(LATITUDE, value.getLatitude(index));
+        gen.writeNumberField(LONGITUDE, value.getLongitude(index));
+        gen.writeEndObject();
+    }
+
+    // Парсер стоит на START_OBJECT точки; неизвестные поля пропускаются
+    private static void readPoint(JsonParser p, DeserializationContext ctxt, CoordinateArray.Builder builder) throws IOException {
+        double latitude = Double.NaN;
+        double longitude = Double.NaN;
+        String field;
+        while ((field = p.nextFieldName()) != null) {
+            JsonToken token = p.nextToken();
+            if (LATITUDE.equals(field)) {
+                latitude = readDegrees(p, ctxt, token);
+            } else if (LONGITUDE.equals(field)) {
+                longitude = readDegrees(p, ctxt, token);
+            } else {
+                p.skipChildren();
+            }
+        }
+        if (Double.isNaN(latitude) || Double.isNaN(longitude)) {
+            ctxt.reportInputMismatch(CoordinateArray.class, "Coordinate latitude and longitude are required");
+        }
+        builder.add(latitude, longitude);
+    }
+
+    private static double readDegrees(JsonParser p, DeserializationContext ctxt, JsonToken token) throws IOException {
+        if (token == JsonToken.VALUE_NUMBER_INT || token == JsonToken.VALUE_NUMBER_FLOAT) {
+            return p.getDoubleValue();
+        }
+        if (token == JsonToken.VALUE_STRING) {
+            try {
+                return Double.parseDouble(p.getText().trim());
+            } catch (NumberFormatException e) {
+                ctxt.reportInputMismatch(CoordinateArray.class, "Invalid coordinate value '%s'", p.getText());
+            }
+        }
+        if (token != JsonToken.VALUE_NULL) {
+            ctxt.handleUnexpectedToken(Double.class, p);
+        }
+        return Double.NaN;
+    }
+}
@@ -1,14 +1,16 @@
 package kz.eospatial.GeoForestry.dto;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
-import kz.eospatial.GeoForestry.models.GeoCoordinate;
+import kz.eospatial.GeoForestry.models.CoordinateArray;
 
 import java.time.LocalDate;
-import java.util.List;
 
 @JsonInclude(JsonInclude.Include.NON_NULL)
 public class ForestryDto {
@@ -23,11 +25,16 @@ public class ForestryDto {
     @NotBlank(message = "Map style URL cannot be blank")
     private String mapStyleUrl;
 
+    // Вершины в одном double[]; в JSON прежний вид [{"latitude":..,"longitude":..}, ...]
     @NotNull(message = "Boundaries cannot be null")
-    private List<GeoCoordinate> boundaries;
+    @JsonSerialize(using = CoordinateJson.ListSerializer.class)
+    @JsonDeserialize(using = CoordinateJson.ListDeserializer.class)
+    private CoordinateArray boundaries;
 
     @NotNull(message = "Center cannot be null")
-    private GeoCoordinate center;;
+    @JsonSerialize(using = CoordinateJson.PointSerializer.class)
+    @JsonDeserialize(using = CoordinateJson.PointDeserializer.class)
+    private CoordinateArray center;
 
     private String mapBoxToken;
     private String token;
@@ -36,9 +43,11 @@ public class ForestryDto {
     @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd")
     private LocalDate tokenExpirationDate;
 
+    @JsonIgnore
+    private Long version;
 
-    public ForestryDto(String name, String region, String mapStyleUrl, List<GeoCoordinate> boundaries,
-                       GeoCoordinate center, String mapBoxToken, String token, LocalDate tokenExpirationDate) {
+    public ForestryDto(String name, String region, String mapStyleUrl, CoordinateArray boundaries,
+                       CoordinateArray center, String mapBoxToken, String token, LocalDate tokenExpirationDate) {
         this.name = name;
         this.region = region;
         this.mapStyleUrl = mapStyleUrl;
@@ -84,19 +93,19 @@ public class ForestryDto {
         this.mapStyleUrl = mapStyleUrl;
     }
 
-    public List<GeoCoordinate> getBoundaries() {
+    public CoordinateArray getBoundaries() {
         return boundaries;
     }
 
-    public void setBoundaries(List<GeoCoordinate> boundaries) {
+    public void setBoundaries(CoordinateArray boundaries) {
         this.boundaries = boundaries;
     }
 
-    public GeoCoordinate getCenter() {
+    public CoordinateArray getCenter() {
         return center;
     }
 
-    public void setCenter(GeoCoordinate center) {
+    public void setCenter(CoordinateArray center) {
         this.center = center;
     }
 
@@ -124,6 +133,14 @@ public class ForestryDto {
         this.tokenExpirationDate = tokenExpirationDate;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     @Override
     public String toString() {
         return "ForestryDto{" +
@@ -0,0 +1,21 @@
+package kz.eospatial.GeoForestry.events;
+
+// Публикуется сервисами при любом изменении или удалении лесничества
+public class ForestryChangedEvent {
+
+    private final Long forestryId;
+    private final String token;
+
+    public ForestryChangedEvent(Long forestryId, String token) {
+        this.forestryId = forestryId;
+        this.token = token;
+    }
+
+    public Long getForestryId() {
+        return forestryId;
+    }
+
+    public String getToken() {
+        return token;
+    }
+}
@@ -0,0 +1,38 @@
+package kz.eospatial.GeoForestry.events;
+
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.MultiPolygon;
+
+// Публикуется при записи или удалении геометрии лесничества.
+// Старый охват нужен для инвалидации тайлов, новая геометрия — для индексов в памяти.
+public class ForestryGeometryChangedEvent {
+
+    private final Long forestryId;
+    private final Envelope previousEnvelope;
+    private final MultiPolygon currentGeometry;
+
+    public ForestryGeometryChangedEvent(Long forestryId, Envelope previousEnvelope, MultiPolygon currentGeometry) {
+        this.forestryId = forestryId;
+        this.previousEnvelope = previousEnvelope;
+        this.currentGeometry = currentGeometry;
+    }
+
+    public Long getForestryId() {
+        return forestryId;
+    }
+
+    // null, если геометрии раньше не было
+    public Envelope getPreviousEnvelope() {
+        return previousEnvelope;
+    }
+
+    // null, если геометрия удалена
+    public MultiPolygon getCurrentGeometry() {
+        return currentGeometry;
+    }
+
+    // null, если геометрия удалена
+    public Envelope getCurrentEnvelope() {
+        return currentGeometry != null ? currentGeometry.getEnvelopeInternal() : null;
+    }
+}
@@ -0,0 +1,23 @@
+package kz.eospatial.GeoForestry.events;
+
+import java.time.Instant;
+
+// Публикуется UserService при смене пароля; обрабатывается только после фиксации транзакции
+public class PasswordChangedEvent {
+
+    private final String username;
+    private final Instant changedAt;
+
+    public PasswordChangedEvent(String username, Instant changedAt) {
+        this.username = username;
+        this.changedAt = changedAt;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public Instant getChangedAt() {
+        return changedAt;
+    }
+}
@@ -0,0 +1,7 @@
+package kz.eospatial.GeoForestry.exeptions;
+
+public class IngestionJobConflictException extends RuntimeException {
+    public IngestionJobConflictException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package kz.eospatial.GeoForestry.exeptions;
+
+public class IngestionQueueFullException extends RuntimeException {
+    public IngestionQueueFullException(String message) {
+        super(message);
+    }
+}
@@ -1,61 +1,97 @@
 package kz.eospatial.GeoForestry.facades;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.persistence.EntityNotFoundException;
 import kz.eospatial.GeoForestry.dto.ForestryDto;
 import kz.eospatial.GeoForestry.dto.TokenUpdateRequest;
 import kz.eospatial.GeoForestry.exeptions.ForestryNameExistsException;
+import kz.eospatial.GeoForestry.exeptions.IngestionJobConflictException;
+import kz.eospatial.GeoForestry.exeptions.IngestionQueueFullException;
 import kz.eospatial.GeoForestry.exeptions.UserAlreadyExistsException;
+import kz.eospatial.GeoForestry.models.IngestionJob;
 import kz.eospatial.GeoForestry.services.ForestryManagementService;
+import kz.eospatial.GeoForestry.services.GeometryIngestionService;
 import kz.eospatial.GeoForestry.services.ForestryQueryService;
+import kz.eospatial.GeoForestry.services.MetricsService;
 import kz.eospatial.GeoForestry.services.TokenManagementService;
 import kz.eospatial.GeoForestry.user.UserService;
 import kz.eospatial.GeoForestry.user.Users;
+import kz.eospatial.GeoForestry.utils.HttpCacheUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDate;
 import java.time.format.DateTimeParseException;
 import java.util.AbstractMap;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 
 @Service
 public class AdminFacade {
 
     private static final Logger log = LoggerFactory.getLogger(AdminFacade.class);
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
     private final ForestryManagementService forestryManagementService;
     private final ForestryQueryService forestryQueryService;
     private final TokenManagementService tokenManagementService;
     private final UserService userService;
+    private final MetricsService metricsService;
+    private final GeometryIngestionService geometryIngestionService;
+    private final ObjectMapper objectMapper;
+    private final int defaultPageSize;
+    private final int maxPageSize;
 
     @Autowired
     public AdminFacade(ForestryManagementService forestryManagementService, ForestryQueryService forestryQueryService,
-                       TokenManagementService tokenManagementService, UserService userService) {
+                       TokenManagementService tokenManagementService, UserService userService,
+                       MetricsService metricsService, GeometryIngestionService geometryIngestionService,
+                       ObjectMapper objectMapper,
+                       @Value("${forestry.admin.page-size:100}") int defaultPageSize,
+                       @Value("${forestry.admin.max-page-size:1000}") int maxPageSize) {
         this.forestryManagementService = forestryManagementService;
         this.forestryQueryService = forestryQueryService;
         this.tokenManagementService = tokenManagementService;
         this.userService = userService;
+        this.metricsService = metricsService;
+        this.geometryIngestionService = geometryIngestionService;
+        this.objectMapper = objectMapper;
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
     }
 
     // Обработка MultipartFile данных
-    public ResponseEntity<Map<String, Object>> addForestry(ForestryDto forestryDto, MultipartFile file) {
+    public ResponseEntity<Map<String, Object>> addForestry(ForestryDto forestryDto, MultipartFile file, boolean asyncGeometry) {
         try {
             log.info("Adding new forestry with name: {}", forestryDto.getName());
-            if (file != null && !file.isEmpty()) {
+            boolean hasGeometry = file != null && !file.isEmpty();
+            if (hasGeometry) {
                 log.info("GeoJSON file provided for forestry: {}", file.getOriginalFilename());
             }
 
             // Вызов сервиса для создания лесничества и получения токена
-            AbstractMap.SimpleEntry<ForestryDto, String> result = forestryManagementService.addForestry(forestryDto, file);
+            AbstractMap.SimpleEntry<ForestryDto, String> result =
+                    forestryManagementService.addForestry(forestryDto, asyncGeometry ? null : file);
 
             // Формирование ответа
-            return prepareResponse(result);
+            ResponseEntity<Map<String, Object>> response = prepareResponse(result);
+            if (asyncGeometry && hasGeometry) {
+                submitGeometryJob(result.getKey().getId(), file, response.getBody());
+            }
+            return response;
         } catch (Exception e) {
             return handleError(e, forestryDto);
         }
@@ -102,17 +138,22 @@ public class AdminFacade {
     }
 
     // Обновление лесничества
-    public ResponseEntity<Map<String, Object>> updateForestry(Long id, ForestryDto forestryDto, MultipartFile geoJsonFile) {
+    public ResponseEntity<Map<String, Object>> updateForestry(Long id, ForestryDto forestryDto, MultipartFile geoJsonFile,
+                                                              boolean asyncGeometry) {
         try {
             log.info("Updating forestry with ID: {}", id);
 
             // Вызов сервиса для обновления лесничества
-            ForestryDto updatedForestryDto = forestryManagementService.updateForestry(id, forestryDto, geoJsonFile);
+            ForestryDto updatedForestryDto = forestryManagementService.updateForestry(id, forestryDto,
+                    asyncGeometry ? null : geoJsonFile);
 
             // Формирование успешного ответа
             Map<String, Object> response = new HashMap<>();
             response.put("message", "Forestry updated successfully");
             response.put("forestry", updatedForestryDto);
+            if (asyncGeometry && geoJsonFile != null && !geoJsonFile.isEmpty()) {
+                submitGeometryJob(id, geoJsonFile, response);
+            }
             return ResponseEntity.ok(response);
         } catch (EntityNotFoundException e) {
             log.warn("Forestry not found for update with ID: {}", id, e);
@@ -152,6 +193,53 @@ public class AdminFacade {
         }
     }
 
+    // Геометрия загружается в фоне, клиент сразу получает идентификатор задачи
+    public ResponseEntity<?> submitGeoJsonIngestion(Long id, MultipartFile geoJsonFile) {
+        log.info("Submitting GeoJSON ingestion for forestry with ID: {}", id);
+        try {
+            IngestionJob job = geometryIngestionService.submit(id, geoJsonFile);
+            Map<String, Object> response = new HashMap<>();
+            response.put("message", "GeoJSON accepted for processing");
+            response.put("jobId", job.getId());
+            response.put("status", job.getStatus());
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+        } catch (EntityNotFoundException e) {
+            log.warn("Forestry not found with ID: {}", id, e);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("error", "Not Found", "message", e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Bad Request", "message", e.getMessage()));
+        } catch (IngestionJobConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("error", "Conflict", "message", e.getMessage()));
+        } catch (IngestionQueueFullException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "30")
+                    .body(Map.of("error", "Service Unavailable", "message", e.getMessage()));
+        } catch (Exception e) {
+            log.error("Error submitting GeoJSON for forestry with ID: {}, error: {}", id, e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Internal server error", "message", e.getMessage()));
+        }
+    }
+
+    public ResponseEntity<?> getIngestionJob(UUID jobId) {
+        return geometryIngestionService.getJob(jobId)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("error", "Not Found", "message", "Ingestion job not found: " + jobId)));
+    }
+
+    // Лесничество уже сохранено, поэтому переполненная очередь не отменяет запрос, а возвращается как предупреждение
+    private void submitGeometryJob(Long id, MultipartFile geoJsonFile, Map<String, Object> response) throws Exception {
+        try {
+            IngestionJob job = geometryIngestionService.submit(id, geoJsonFile);
+            response.put("geometryJobId", job.getId());
+        } catch (IngestionQueueFullException | IngestionJobConflictException e) {
+            response.put("geometryError", e.getMessage());
+        }
+    }
+
     public ResponseEntity<?> deleteForestryGeoJson(Long id) {
         log.info("Deleting GeoJSON for forestry with ID: {}", id);
         try {
@@ -182,6 +270,7 @@ public class AdminFacade {
         }
     }
 
+    // Полный список без постраничного вывода, если не заданы ни cursor, ни limit
     public ResponseEntity<?> getAllForestries() {
         log.info("Fetching all forestries");
         try {
@@ -198,12 +287,61 @@ public class AdminFacade {
         }
     }
 
+    // Страница списка в теле (как и раньше, JSON-массив); ID для следующей страницы — в заголовке X-Next-Cursor
+    public ResponseEntity<?> getForestriesPage(Long cursor, Integer limit) {
+        int pageSize = limit != null ? limit : defaultPageSize;
+        if (pageSize < 1 || pageSize > maxPageSize) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Bad Request",
+                    "message", "limit must be between 1 and " + maxPageSize));
+        }
+        try {
+            List<ForestryDto> forestryDtos = forestryQueryService.getForestriesPage(cursor, pageSize);
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (forestryDtos.size() == pageSize) {
+                response.header(NEXT_CURSOR_HEADER, String.valueOf(forestryDtos.get(forestryDtos.size() - 1).getId()));
+            }
+            return response.body(forestryDtos);
+        } catch (Exception e) {
+            log.error("Error fetching forestries page after ID {}", cursor, e);
+            Map<String, String> errorDetails = new HashMap<>();
+            errorDetails.put("error", "Service Unavailable");
+            errorDetails.put("message", "Unable to fetch the list of forestries at this time. Please try again later.");
+            return ResponseEntity
+                    .status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(errorDetails);
+        }
+    }
+
+    // Полный список в формате NDJSON: по одному лесничеству в строке, без накопления в памяти
+    public ResponseEntity<StreamingResponseBody> streamAllForestries() {
+        StreamingResponseBody body = out -> forestryQueryService.streamAllForestries(forestry -> {
+            try {
+                out.write(objectMapper.writeValueAsBytes(forestry));
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok().contentType(NDJSON).body(body);
+    }
+
+    public ResponseEntity<?> getForestriesInBbox(double minLon, double minLat, double maxLon, double maxLat) {
+        try {
+            return ResponseEntity.ok(forestryQueryService.getForestriesInBbox(minLon, minLat, maxLon, maxLat));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Bad Request", "message", e.getMessage()));
+        } catch (Exception e) {
+            log.error("Error fetching forestries in bbox", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("error",
+                    "Internal server error", "message", e.getMessage()));
+        }
+    }
 
     public ResponseEntity<?> getForestryById(Long id) {
         log.info("Fetching forestry with ID: {}", id);
         try {
             ForestryDto forestryDto = forestryQueryService.getForestryById(id);
-            return ResponseEntity.ok(forestryDto);
+            return okWithETag(forestryDto);
         } catch (EntityNotFoundException e) {
             log.warn("Forestry not found with ID: {}", id, e);
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Not Found",
@@ -219,7 +357,7 @@ public class AdminFacade {
         log.info("Fetching forestry with name: {}", name);
         try {
             ForestryDto forestryDto = forestryQueryService.getForestryByName(name);
-            return ResponseEntity.ok(forestryDto);
+            return okWithETag(forestryDto);
         } catch (EntityNotFoundException e) {
             log.warn("Forestry not found with name: {}", name, e);
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Not Found",
@@ -235,7 +373,7 @@ public class AdminFacade {
         log.info("Fetching forestry with region: {}", region);
         try {
             ForestryDto forestryDto = forestryQueryService.getForestryByRegion(region);
-            return ResponseEntity.ok(forestryDto);
+            return okWithETag(forestryDto);
         } catch (EntityNotFoundException e) {
             log.warn("Forestry not found with region: {}", region, e);
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Not Found",
@@ -348,5 +486,15 @@ public class AdminFacade {
         }
     }
 
+    private ResponseEntity<ForestryDto> okWithETag(ForestryDto forestryDto) {
+        return ResponseEntity.ok()
+                .eTag(HttpCacheUtils.forestryETag(forestryDto))
+                .cacheControl(HttpCacheUtils.revalidate())
+                .body(forestryDto);
+    }
 
+    public ResponseEntity<?> getMetrics() {
+        log.info("Fetching cache and index metrics");
+        return ResponseEntity.ok(metricsService.getMetrics());
+    }
 }
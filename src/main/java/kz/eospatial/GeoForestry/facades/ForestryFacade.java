@@ -1,60 +1,196 @@
 package kz.eospatial.GeoForestry.facades;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import kz.eospatial.GeoForestry.cache.ForestryResponseCache;
+import kz.eospatial.GeoForestry.dto.CoordinateJson;
 import kz.eospatial.GeoForestry.dto.ForestryDto;
-import kz.eospatial.GeoForestry.models.TokenValidationResult;
-import kz.eospatial.GeoForestry.services.ForestryQueryService;
+import kz.eospatial.GeoForestry.models.TokenResolution;
+import kz.eospatial.GeoForestry.services.GeometryPyramidService;
 import kz.eospatial.GeoForestry.services.TokenService;
+import kz.eospatial.GeoForestry.utils.CompactCoordinates;
+import kz.eospatial.GeoForestry.utils.CoordinateEncoding;
+import kz.eospatial.GeoForestry.utils.GeoJsonUtils;
+import kz.eospatial.GeoForestry.utils.HttpCacheUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.locationtech.jts.geom.MultiPolygon;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.Optional;
 
 @Service
 public class ForestryFacade {
 
     private static final Logger log = LoggerFactory.getLogger(ForestryFacade.class);
-    private final ForestryQueryService forestryService;
+    private static final String PUBLIC_RESPONSE = "public";
+    private static final String GEOMETRY_RESPONSE = "geometry:";
+    private static final MediaType GEO_JSON = MediaType.parseMediaType("application/geo+json");
     private final TokenService tokenService;
+    private final ForestryResponseCache forestryResponseCache;
+    private final GeometryPyramidService geometryPyramidService;
+    private final int compactPrecision;
+    private final ObjectWriter polylineWriter;
+    private final ObjectWriter quantizedWriter;
 
     @Autowired
-    public ForestryFacade(ForestryQueryService forestryService, TokenService tokenService) {
-        this.forestryService = forestryService;
+    public ForestryFacade(TokenService tokenService, ForestryResponseCache forestryResponseCache,
+                          GeometryPyramidService geometryPyramidService, ObjectMapper objectMapper,
+                          @Value("${forestry.compact-encoding.precision:6}") int compactPrecision) {
+        CompactCoordinates.checkPrecision(compactPrecision);
         this.tokenService = tokenService;
+        this.forestryResponseCache = forestryResponseCache;
+        this.geometryPyramidService = geometryPyramidService;
+        this.compactPrecision = compactPrecision;
+        // Отдельные копии ObjectMapper: mix-in меняет только сериализацию границ
+        this.polylineWriter = objectMapper.copy()
+                .addMixIn(ForestryDto.class, CoordinateJson.PolylineBoundaries.class)
+                .writer()
+                .withAttribute(CoordinateJson.PRECISION_ATTRIBUTE, compactPrecision);
+        this.quantizedWriter = objectMapper.copy()
+                .addMixIn(ForestryDto.class, CoordinateJson.QuantizedBoundaries.class)
+                .writer()
+                .withAttribute(CoordinateJson.PRECISION_ATTRIBUTE, compactPrecision);
     }
 
-    public ResponseEntity<?> getForestryByToken(String token) {
+    public ResponseEntity<?> getForestryByToken(String token, String encoding, String accept, String acceptEncoding) {
         log.info("Received request to retrieve forestry with token: {}", token);
 
-        TokenValidationResult validationResult = tokenService.validateToken(token);
-        if (!validationResult.isValid()) {
+        CoordinateEncoding coordinateEncoding;
+        try {
+            coordinateEncoding = CoordinateEncoding.fromRequest(encoding, accept);
+        } catch (IllegalArgumentException e) {
+            return badEncoding(e);
+        }
+
+        TokenResolution resolution = tokenService.resolveToken(token);
+        if (!resolution.isValid()) {
             log.warn("Token validation failed for token: {}", token);
             return ResponseEntity.badRequest().body(Map.of(
                     "error", "Bad Request",
-                    "message", validationResult.getMessage()
+                    "message", resolution.toValidationResult().getMessage()
             ));
         }
 
-        log.info("Token validation succeeded for token: {}", token);
-        Optional<ForestryDto> forestryDto = forestryService.getForestryByToken(token);
+        log.info("Forestry found with token: {}", token);
+        ForestryDto forestry = resolution.getForestry();
+        ForestryResponseCache.CachedResponse cached = coordinateEncoding == CoordinateEncoding.JSON
+                ? forestryResponseCache.get(forestry, PUBLIC_RESPONSE, () -> forestryBody(forestry))
+                : forestryResponseCache.getJson(forestry, PUBLIC_RESPONSE + encodingVariant(coordinateEncoding),
+                        () -> compactForestryBody(forestry, coordinateEncoding));
+
+        String eTag = HttpCacheUtils.withEncoding(HttpCacheUtils.forestryETag(forestry), coordinateEncoding, compactPrecision);
+        return cachedResponse(cached, eTag, MediaType.APPLICATION_JSON, acceptEncoding);
+    }
+
+    // Геометрия лесничества с детализацией, подобранной под зум; без зума — исходная
+    public ResponseEntity<?> getForestryGeometry(String token, Integer zoom, String encoding, String accept,
+                                                 String acceptEncoding) {
+        log.info("Received request to retrieve forestry geometry with token: {}, zoom: {}", token, zoom);
+
+        CoordinateEncoding coordinateEncoding;
+        try {
+            coordinateEncoding = CoordinateEncoding.fromRequest(encoding, accept);
+        } catch (IllegalArgumentException e) {
+            return badEncoding(e);
+        }
 
-        return forestryDto.map(dto -> {
-            log.info("Forestry found with token: {}", token);
-            return ResponseEntity.ok(Map.of(
-                    "message", "Forestry found successfully",
-                    "forestry", dto
+        TokenResolution resolution = tokenService.resolveToken(token);
+        if (!resolution.isValid()) {
+            log.warn("Token validation failed for token: {}", token);
+            return ResponseEntity.badRequest().body(Map.of(
+                    "error", "Bad Request",
+                    "message", resolution.toValidationResult().getMessage()
             ));
-        }).orElseGet(() -> {
-            log.warn("No forestry found with token: {}", token);
+        }
+
+        ForestryDto forestry = resolution.getForestry();
+        int level = zoom != null ? geometryPyramidService.levelForZoom(zoom) : GeometryPyramidService.FULL_RESOLUTION;
+        ForestryResponseCache.CachedResponse cached = forestryResponseCache.getJson(forestry,
+                GEOMETRY_RESPONSE + level + encodingVariant(coordinateEncoding),
+                () -> geometryPyramidService.getGeometry(forestry.getId(), level)
+                        .map(geometry -> geoJson(geometry, coordinateEncoding))
+                        .orElse(null));
+        if (cached == null) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of(
                     "error", "Not Found",
-                    "message", "No forestry found with token: " + token
+                    "message", "Geometry not found for forestry"
             ));
-        });
+        }
+        // Компактные контуры - уже не GeoJSON, поэтому тип обычный application/json
+        String eTag = HttpCacheUtils.withEncoding(HttpCacheUtils.geometryETag(forestry, level), coordinateEncoding, compactPrecision);
+        MediaType contentType = coordinateEncoding == CoordinateEncoding.JSON ? GEO_JSON : MediaType.APPLICATION_JSON;
+        return cachedResponse(cached, eTag, contentType, acceptEncoding);
+    }
+
+    // При совпадении If-None-Match Spring отвечает 304, не записывая тело.
+    // Сжатое тело - отдельное представление, поэтому у него свой ETag
+    private ResponseEntity<?> cachedResponse(ForestryResponseCache.CachedResponse cached, String eTag,
+                                             MediaType contentType, String acceptEncoding) {
+        boolean gzip = cached.getGzip() != null && HttpCacheUtils.acceptsGzip(acceptEncoding);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .eTag(gzip ? HttpCacheUtils.gzipETag(eTag) : eTag)
+                .cacheControl(HttpCacheUtils.revalidate())
+                .contentType(contentType)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT + ", " + HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(cached.getGzip());
+        }
+        return response.body(cached.getJson());
+    }
+
+    private byte[] geoJson(MultiPolygon geometry, CoordinateEncoding encoding) {
+        try {
+            return encoding == CoordinateEncoding.JSON
+                    ? GeoJsonUtils.toGeoJson(geometry)
+                    : GeoJsonUtils.toCompactGeoJson(geometry, encoding, compactPrecision);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Тело как у обычного ответа, плюс описание формата границ
+    private byte[] compactForestryBody(ForestryDto forestry, CoordinateEncoding encoding) {
+        Map<String, Object> body = forestryBody(forestry);
+        Map<String, Object> coordinateEncoding = new LinkedHashMap<>();
+        coordinateEncoding.put("format", encoding.getValue());
+        coordinateEncoding.put("precision", compactPrecision);
+        coordinateEncoding.put("order", CompactCoordinates.AXIS_ORDER);
+        body.put("coordinateEncoding", coordinateEncoding);
+        ObjectWriter writer = encoding == CoordinateEncoding.POLYLINE ? polylineWriter : quantizedWriter;
+        try {
+            return writer.writeValueAsBytes(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unable to serialize forestry response", e);
+        }
+    }
+
+    private String encodingVariant(CoordinateEncoding encoding) {
+        return encoding == CoordinateEncoding.JSON ? "" : ":" + encoding.getValue() + compactPrecision;
+    }
+
+    private ResponseEntity<?> badEncoding(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(Map.of(
+                "error", "Bad Request",
+                "message", e.getMessage()
+        ));
+    }
+
+    private Map<String, Object> forestryBody(ForestryDto forestry) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("message", "Forestry found successfully");
+        body.put("forestry", forestry);
+        return body;
     }
 
 }
@@ -0,0 +1,165 @@
+package kz.eospatial.GeoForestry.facades;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import kz.eospatial.GeoForestry.spatial.EqualArea;
+import kz.eospatial.GeoForestry.spatial.ForestrySpatialIndex;
+import kz.eospatial.GeoForestry.spatial.GridCellIndex;
+import kz.eospatial.GeoForestry.spatial.IntersectionService;
+import kz.eospatial.GeoForestry.spatial.PointClassificationService;
+import kz.eospatial.GeoForestry.utils.GeoJsonUtils;
+import org.locationtech.jts.geom.MultiPolygon;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+@Service
+public class SpatialFacade {
+
+    private static final Logger log = LoggerFactory.getLogger(SpatialFacade.class);
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private final ForestrySpatialIndex forestrySpatialIndex;
+    private final GridCellIndex gridCellIndex;
+    private final PointClassificationService pointClassificationService;
+    private final IntersectionService intersectionService;
+    private final int batchMaxPoints;
+    private final int nearestMaxK;
+
+    public SpatialFacade(ForestrySpatialIndex forestrySpatialIndex,
+                         GridCellIndex gridCellIndex,
+                         PointClassificationService pointClassificationService,
+                         IntersectionService intersectionService,
+                         @Value("${forestry.spatial.batch-max-points:1000000}") int batchMaxPoints,
+                         @Value("${forestry.spatial.nearest-max-k:100}") int nearestMaxK) {
+        this.forestrySpatialIndex = forestrySpatialIndex;
+        this.gridCellIndex = gridCellIndex;
+        this.pointClassificationService = pointClassificationService;
+        this.intersectionService = intersectionService;
+        this.batchMaxPoints = batchMaxPoints;
+        this.nearestMaxK = nearestMaxK;
+    }
+
+    // По умолчанию — сетка ячеек (одна проба хеш-таблицы); index=rtree — поиск по STRtree
+    public ResponseEntity<?> lookup(double lat, double lon, String index) {
+        if (!isValidCoordinate(lat, lon)) {
+            return ResponseEntity.badRequest().body(Map.of(
+                    "error", "Bad Request",
+                    "message", "Coordinates out of range: lat must be in [-90, 90], lon in [-180, 180]"
+            ));
+        }
+        List<Long> forestryIds = "rtree".equalsIgnoreCase(index)
+                ? forestrySpatialIndex.findContaining(lon, lat)
+                : gridCellIndex.findContaining(lon, lat);
+        log.debug("Point ({}, {}) is inside forestries {}", lat, lon, forestryIds);
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("lat", lat);
+        response.put("lon", lon);
+        response.put("forestryIds", forestryIds);
+        return ResponseEntity.ok(response);
+    }
+
+    // Трек передаётся плоским массивом [lon, lat, lon, lat, ...]; ответ — массив ID той же длины, что и число точек
+    public ResponseEntity<?> classify(double[] lonLat) {
+        if (lonLat == null || lonLat.length % 2 != 0) {
+            return ResponseEntity.badRequest().body(Map.of(
+                    "error", "Bad Request",
+                    "message", "Expected a flat array of lon/lat pairs"
+            ));
+        }
+        int points = lonLat.length / 2;
+        if (points > batchMaxPoints) {
+            return ResponseEntity.badRequest().body(Map.of(
+                    "error", "Bad Request",
+                    "message", "Too many points: " + points + ", maximum is " + batchMaxPoints
+            ));
+        }
+        log.info("Classifying {} points", points);
+
+        // Участки считаются параллельно, а пишутся по порядку по мере готовности
+        long started = System.nanoTime();
+        List<CompletableFuture<long[]>> chunks = pointClassificationService.classify(lonLat);
+
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = JSON_FACTORY.createGenerator(out, JsonEncoding.UTF8)) {
+                generator.writeStartArray();
+                for (CompletableFuture<long[]> chunk : chunks) {
+                    for (long forestryId : chunk.join()) {
+                        if (forestryId < 0) {
+                            generator.writeNull();
+                        } else {
+                            generator.writeNumber(forestryId);
+                        }
+                    }
+                }
+                generator.writeEndArray();
+            } finally {
+                pointClassificationService.recordBatch(System.nanoTime() - started);
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    // Ближайшие лесничества к точке, в том числе когда точка вне всех границ
+    public ResponseEntity<?> nearest(double lat, double lon, int k) {
+        if (!isValidCoordinate(lat, lon)) {
+            return ResponseEntity.badRequest().body(Map.of(
+                    "error", "Bad Request",
+                    "message", "Coordinates out of range: lat must be in [-90, 90], lon in [-180, 180]"
+            ));
+        }
+        if (k < 1 || k > nearestMaxK) {
+            return ResponseEntity.badRequest().body(Map.of(
+                    "error", "Bad Request",
+                    "message", "k must be between 1 and " + nearestMaxK
+            ));
+        }
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("lat", lat);
+        response.put("lon", lon);
+        response.put("forestries", forestrySpatialIndex.nearest(lon, lat, k));
+        return ResponseEntity.ok(response);
+    }
+
+    // Контур (Polygon/MultiPolygon, Feature или FeatureCollection) разбирается тем же потоковым парсером, что и загрузки
+    public ResponseEntity<?> intersect(InputStream geoJson) {
+        MultiPolygon perimeter;
+        try {
+            perimeter = GeoJsonUtils.parseGeoJson(geoJson);
+        } catch (IOException | IllegalArgumentException e) {
+            // IllegalArgumentException - геометрия, которую JTS не может построить из разобранных координат
+            log.warn("Invalid perimeter GeoJSON: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(Map.of(
+                    "error", "Bad Request",
+                    "message", "Invalid GeoJSON: " + e.getMessage()
+            ));
+        }
+        if (!perimeter.isValid()) {
+            return ResponseEntity.badRequest().body(Map.of(
+                    "error", "Bad Request",
+                    "message", "Perimeter geometry is not valid"
+            ));
+        }
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("perimeterAreaHa", EqualArea.squareMeters(perimeter) / EqualArea.SQUARE_METERS_PER_HECTARE);
+        response.put("forestries", intersectionService.intersect(perimeter));
+        return ResponseEntity.ok(response);
+    }
+
+    static boolean isValidCoordinate(double lat, double lon) {
+        return lat >= -90 && lat <= 90 && lon >= -180 && lon <= 180;
+    }
+}
@@ -0,0 +1,45 @@
+package kz.eospatial.GeoForestry.facades;
+
+import kz.eospatial.GeoForestry.services.VectorTileService;
+import kz.eospatial.GeoForestry.utils.TileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+
+@Service
+public class TileFacade {
+
+    private static final Logger log = LoggerFactory.getLogger(TileFacade.class);
+    private static final MediaType VECTOR_TILE = MediaType.parseMediaType("application/vnd.mapbox-vector-tile");
+    private final VectorTileService vectorTileService;
+
+    public TileFacade(VectorTileService vectorTileService) {
+        this.vectorTileService = vectorTileService;
+    }
+
+    public ResponseEntity<?> getTile(int z, int x, int y) {
+        if (!TileUtils.isValid(z, x, y)) {
+            return ResponseEntity.badRequest().body(Map.of(
+                    "error", "Bad Request",
+                    "message", "Invalid tile coordinates: " + z + "/" + x + "/" + y
+            ));
+        }
+        try {
+            byte[] tile = vectorTileService.getTile(z, x, y);
+            // В тайле нет лесничеств
+            if (tile.length == 0) {
+                return ResponseEntity.noContent().build();
+            }
+            return ResponseEntity.ok().contentType(VECTOR_TILE).body(tile);
+        } catch (Exception e) {
+            log.error("Error rendering tile {}/{}/{}: {}", z, x, y, e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Internal server error", "message", e.getMessage()));
+        }
+    }
+}
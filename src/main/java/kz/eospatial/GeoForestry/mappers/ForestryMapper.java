@@ -2,68 +2,26 @@ package kz.eospatial.GeoForestry.mappers;
 
 import kz.eospatial.GeoForestry.dto.ForestryDto;
 import kz.eospatial.GeoForestry.models.Forestry;
-import kz.eospatial.GeoForestry.models.GeoCoordinate;
+import kz.eospatial.GeoForestry.models.ForestryAdminView;
+import kz.eospatial.GeoForestry.models.ForestryView;
 import org.mapstruct.*;
 
-import java.util.Arrays;
-import java.util.List;
-import java.util.stream.Collectors;
-
+// boundaries и center - неизменяемые CoordinateArray и в сущности, и в DTO, поэтому копируются по ссылке
 @Mapper(componentModel = "spring", injectionStrategy = InjectionStrategy.CONSTRUCTOR)
 public interface ForestryMapper {
 
     @Mapping(target = "id", ignore = true)
     @Mapping(target = "token", ignore = true)
-    @Mapping(target = "boundaries", ignore = true)
-    @Mapping(target = "center", ignore = true)
+    @Mapping(target = "version", ignore = true)
     Forestry toModel(ForestryDto forestryDto);
 
-    @Mapping(target = "boundaries", ignore = true)
-    @Mapping(target = "center", ignore = true)
     @Mapping(target = "token", ignore = true)
     ForestryDto toDto(Forestry forestry);
 
-    @Mapping(target = "boundaries", ignore = true)
-    @Mapping(target = "center", ignore = true)
     ForestryDto toDtoWithToken(Forestry forestry);
 
-    @AfterMapping
-    default void toModelPostMapping(ForestryDto dto, @MappingTarget Forestry entity) {
-        // Преобразование List<GeoCoordinate> в строку для сохранения
-        if (dto.getBoundaries() != null && !dto.getBoundaries().isEmpty()) {
-            String boundariesAsString = dto.getBoundaries().stream()
-                    .map(coord -> coord.getLatitude() + "," + coord.getLongitude())
-                    .collect(Collectors.joining(";"));
-            entity.setBoundaries(boundariesAsString);
-        }
-
-        // Преобразование GeoCoordinate в строку для сохранения
-        GeoCoordinate center = dto.getCenter();
-        if (center != null) {
-            String centerAsString = center.getLatitude() + "," + center.getLongitude();
-            entity.setCenter(centerAsString);
-        }
-    }
-
-    @AfterMapping
-    default void toDtoPostMapping(Forestry entity, @MappingTarget ForestryDto dto) {
-        // Преобразование строки в List<GeoCoordinate>
-        if (entity.getBoundaries() != null && !entity.getBoundaries().isEmpty()) {
-            String[] coordsArray = entity.getBoundaries().split(";");
-            List<GeoCoordinate> boundaries = Arrays.stream(coordsArray)
-                    .map(coord -> {
-                        String[] latLong = coord.split(",");
-                        return new GeoCoordinate(Double.parseDouble(latLong[0]), Double.parseDouble(latLong[1]));
-                    })
-                    .collect(Collectors.toList());
-            dto.setBoundaries(boundaries);
-        }
+    @Mapping(target = "token", ignore = true)
+    ForestryDto toDto(ForestryView forestryView);
 
-        // Преобразование строки в GeoCoordinate
-        if (entity.getCenter() != null && !entity.getCenter().isEmpty()) {
-            String[] latLong = entity.getCenter().split(",");
-            GeoCoordinate center = new GeoCoordinate(Double.parseDouble(latLong[0]), Double.parseDouble(latLong[1]));
-            dto.setCenter(center);
-        }
-    }
+    ForestryDto toDtoWithToken(ForestryAdminView forestryView);
 }
@@ -0,0 +1,104 @@
+package kz.eospatial.GeoForestry.models;
+
+import java.util.Arrays;
+
+// Неизменяемый список координат в одном массиве double: [lat0, lon0, lat1, lon1, ...]
+public final class CoordinateArray {
+
+    private static final CoordinateArray EMPTY = new CoordinateArray(new double[0]);
+
+    private final double[] latLon;
+
+    private CoordinateArray(double[] latLon) {
+        this.latLon = latLon;
+    }
+
+    public static CoordinateArray empty() {
+        return EMPTY;
+    }
+
+    // Копирует переданный массив
+    public static CoordinateArray of(double... latLon) {
+        return wrap(latLon.clone());
+    }
+
+    // Без копирования: вызывающий код не должен больше изменять массив
+    static CoordinateArray wrap(double[] latLon) {
+        if (latLon.length % 2 != 0) {
+            throw new IllegalArgumentException("Coordinate array must contain lat/lon pairs, got " + latLon.length + " values");
+        }
+        return latLon.length == 0 ? EMPTY : new CoordinateArray(latLon);
+    }
+
+    public int size() {
+        return latLon.length / 2;
+    }
+
+    public boolean isEmpty() {
+        return latLon.length == 0;
+    }
+
+    public double getLatitude(int index) {
+        return latLon[index * 2];
+    }
+
+    public double getLongitude(int index) {
+        return latLon[index * 2 + 1];
+    }
+
+    public double[] toArray() {
+        return latLon.clone();
+    }
+
+    public static Builder builder(int expectedSize) {
+        return new Builder(expectedSize);
+    }
+
+    // Накопление точек без промежуточных объектов; при точной ёмкости массив не копируется
+    public static final class Builder {
+
+        private double[] latLon;
+        private int length;
+
+        private Builder(int expectedSize) {
+            this.latLon = new double[Math.max(expectedSize, 1) * 2];
+        }
+
+        public Builder add(double latitude, double longitude) {
+            if (length == latLon.length) {
+                latLon = Arrays.copyOf(latLon, latLon.length * 2);
+            }
+            latLon[length++] = latitude;
+            latLon[length++] = longitude;
+            return this;
+        }
+
+        public CoordinateArray build() {
+            return wrap(length == latLon.length ? latLon : Arrays.copyOf(latLon, length));
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof CoordinateArray)) return false;
+        return Arrays.equals(latLon, ((CoordinateArray) o).latLon);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(latLon);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < latLon.length; i += 2) {
+            if (i > 0) {
+                sb.append(';');
+            }
+            sb.append(latLon[i]).append(',').append(latLon[i + 1]);
+        }
+        return sb.append(']').toString();
+    }
+}
@@ -0,0 +1,102 @@
+package kz.eospatial.GeoForestry.models;
+
+import java.util.Arrays;
+
+// Двоичный формат координат лесничества:
+// байт версии, число точек (varint), затем для каждой точки разности lat и lon
+// с предыдущей точкой в фиксированной точке 1e-7 градуса (~1 см), zigzag + varint.
+// Соседние вершины границы близки, поэтому большинство разностей занимает 2-3 байта.
+public final class CoordinateArrayCodec {
+
+    public static final byte FORMAT_FIXED_POINT_DELTA = 1;
+
+    private static final double SCALE = 1e7;
+    private static final int MAX_VARINT_BYTES = 10;
+
+    private CoordinateArrayCodec() {
+    }
+
+    public static byte[] encode(CoordinateArray coordinates) {
+        int size = coordinates.size();
+        byte[] buffer = new byte[1 + 5 + size * 2 * MAX_VARINT_BYTES];
+        buffer[0] = FORMAT_FIXED_POINT_DELTA;
+        int pos = writeVarint(buffer, 1, size);
+
+        long previousLat = 0;
+        long previousLon = 0;
+        for (int i = 0; i < size; i++) {
+            long lat = toFixed(coordinates.getLatitude(i));
+            long lon = toFixed(coordinates.getLongitude(i));
+            pos = writeVarint(buffer, pos, zigzag(lat - previousLat));
+            pos = writeVarint(buffer, pos, zigzag(lon - previousLon));
+            previousLat = lat;
+            previousLon = lon;
+        }
+        return Arrays.copyOf(buffer, pos);
+    }
+
+    public static CoordinateArray decode(byte[] data) {
+        if (data.length == 0 || data[0] != FORMAT_FIXED_POINT_DELTA) {
+            throw new IllegalArgumentException("Unsupported coordinate encoding");
+        }
+        int[] pos = {1};
+        long size = readVarint(data, pos);
+        // Каждая точка занимает минимум два байта
+        if (size < 0 || size > (data.length - pos[0]) / 2) {
+            throw new IllegalArgumentException("Corrupted coordinate data: " + size + " points in " + data.length + " bytes");
+        }
+
+        double[] latLon = new double[(int) size * 2];
+        long lat = 0;
+        long lon = 0;
+        for (int i = 0; i < latLon.length; i += 2) {
+            lat += unzigzag(readVarint(data, pos));
+            lon += unzigzag(readVarint(data, pos));
+            latLon[i] = lat / SCALE;
+            latLon[i + 1] = lon / SCALE;
+        }
+        if (pos[0] != data.length) {
+            throw new IllegalArgumentException("Corrupted coordinate data: trailing bytes");
+        }
+        return CoordinateArray.wrap(latLon);
+    }
+
+    private static long toFixed(double degrees) {
+        if (!Double.isFinite(degrees)) {
+            throw new IllegalArgumentException("Coordinate is not a finite number: " + degrees);
+        }
+        return Math.round(degrees * SCALE);
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static int writeVarint(byte[] buffer, int pos, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer[pos++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[pos++] = (byte) value;
+        return pos;
+    }
+
+    private static long readVarint(byte[] data, int[] pos) {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (pos[0] >= data.length) {
+                throw new IllegalArgumentException("Corrupted coordinate data: truncated varint");
+            }
+            byte b = data[pos[0]++];
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IllegalArgumentException("Corrupted coordinate data: varint too long");
+    }
+}
@@ -0,0 +1,21 @@
+package kz.eospatial.GeoForestry.models;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+import org.hibernate.annotations.Immutable;
+
+// Хранение CoordinateArray в bytea. Значения неизменяемы, поэтому Hibernate не делает их глубоких копий.
+@Converter
+@Immutable
+public class CoordinateArrayConverter implements AttributeConverter<CoordinateArray, byte[]> {
+
+    @Override
+    public byte[] convertToDatabaseColumn(CoordinateArray coordinates) {
+        return coordinates == null ? null : CoordinateArrayCodec.encode(coordinates);
+    }
+
+    @Override
+    public CoordinateArray convertToEntityAttribute(byte[] data) {
+        return data == null ? null : CoordinateArrayCodec.decode(data);
+    }
+}
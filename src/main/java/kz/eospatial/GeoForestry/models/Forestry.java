@@ -17,17 +17,26 @@ public class Forestry {
     private String region;
     private String mapStyleUrl;
 
-    @Column(length = 1000)
-    private String boundaries;
-    private String center;
+    // Координаты хранятся в двоичном виде (CoordinateArrayCodec), длина границы не ограничена
+    @Convert(converter = CoordinateArrayConverter.class)
+    @Column(name = "boundaries_packed")
+    private CoordinateArray boundaries;
+
+    @Convert(converter = CoordinateArrayConverter.class)
+    @Column(name = "center_packed")
+    private CoordinateArray center;
 
     private String mapBoxToken;
     private String token;
     private LocalDate tokenExpirationDate;
 
+    // Увеличивается Hibernate при каждом изменении строки (оптимистическая блокировка);
+    // изменения геометрии поднимают версию через PESSIMISTIC_FORCE_INCREMENT. Используется для ETag.
+    @Version
+    private Long version;
 
     public Forestry(Long id, String name, String region, String mapStyleUrl,
-                    String boundaries, String center, String mapBoxToken, String token, LocalDate tokenExpirationDate) {
+                    CoordinateArray boundaries, CoordinateArray center, String mapBoxToken, String token, LocalDate tokenExpirationDate) {
         this.id = id;
         this.name = name;
         this.region = region;
@@ -74,19 +83,19 @@ public class Forestry {
         this.mapStyleUrl = mapStyleUrl;
     }
 
-    public String getBoundaries() {
+    public CoordinateArray getBoundaries() {
         return boundaries;
     }
 
-    public void setBoundaries(String boundaries) {
+    public void setBoundaries(CoordinateArray boundaries) {
         this.boundaries = boundaries;
     }
 
-    public String getCenter() {
+    public CoordinateArray getCenter() {
         return center;
     }
 
-    public void setCenter(String center) {
+    public void setCenter(CoordinateArray center) {
         this.center = center;
     }
 
@@ -114,6 +123,14 @@ public class Forestry {
         this.tokenExpirationDate = tokenExpirationDate;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     @Override
     public String toString() {
         return "Forestry{" +
@@ -121,11 +138,12 @@ public class Forestry {
                 ", name='" + name + '\'' +
                 ", region='" + region + '\'' +
                 ", mapStyleUrl='" + mapStyleUrl + '\'' +
-                ", boundaries='" + boundaries + '\'' +
-                ", center='" + center + '\'' +
+                ", boundaries=" + boundaries +
+                ", center=" + center +
                 ", mapBoxToken='" + mapBoxToken + '\'' +
                 ", token='" + token + '\'' +
                 ", tokenExpirationDate=" + tokenExpirationDate +
+                ", version=" + version +
                 '}';
     }
 }
@@ -0,0 +1,6 @@
+package kz.eospatial.GeoForestry.models;
+
+// Проекция для списков администратора: те же колонки, что и ForestryView, плюс токен
+public interface ForestryAdminView extends ForestryView {
+    String getToken();
+}
@@ -11,6 +11,8 @@ public class ForestryGeometries {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    // Одна геометрия на лесничество; на этот ключ опирается upsert в ForestryGeometriesRepository
+    @Column(unique = true)
     private Long forestryId;
 
     @Column(columnDefinition = "geometry(MultiPolygon,4326)")
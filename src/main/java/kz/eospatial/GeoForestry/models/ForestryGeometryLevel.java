@@ -0,0 +1,85 @@
+package kz.eospatial.GeoForestry.models;
+
+import jakarta.persistence.*;
+import org.locationtech.jts.geom.MultiPolygon;
+
+// Упрощённая копия геометрии лесничества для одного уровня детализации
+@Entity
+@Table(name = "forestry_geometry_levels",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"forestryId", "level"}))
+public class ForestryGeometryLevel {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private Long forestryId;
+
+    private int level;
+
+    private double tolerance;
+
+    private int vertexCount;
+
+    @Column(columnDefinition = "geometry(MultiPolygon,4326)")
+    private MultiPolygon geom;
+
+    public ForestryGeometryLevel(Long forestryId, int level, double tolerance, MultiPolygon geom) {
+        this.forestryId = forestryId;
+        this.level = level;
+        this.tolerance = tolerance;
+        this.vertexCount = geom.getNumPoints();
+        this.geom = geom;
+    }
+
+    public ForestryGeometryLevel() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getForestryId() {
+        return forestryId;
+    }
+
+    public void setForestryId(Long forestryId) {
+        this.forestryId = forestryId;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public void setLevel(int level) {
+        this.level = level;
+    }
+
+    public double getTolerance() {
+        return tolerance;
+    }
+
+    public void setTolerance(double tolerance) {
+        this.tolerance = tolerance;
+    }
+
+    public int getVertexCount() {
+        return vertexCount;
+    }
+
+    public void setVertexCount(int vertexCount) {
+        this.vertexCount = vertexCount;
+    }
+
+    public MultiPolygon getGeom() {
+        return geom;
+    }
+
+    public void setGeom(MultiPolygon geom) {
+        this.geom = geom;
+    }
+}
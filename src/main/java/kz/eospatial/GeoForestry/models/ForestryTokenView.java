@@ -0,0 +1,9 @@
+package kz.eospatial.GeoForestry.models;
+
+import java.time.LocalDate;
+
+public interface ForestryTokenView {
+    Long getId();
+    String getToken();
+    LocalDate getTokenExpirationDate();
+}
@@ -0,0 +1,16 @@
+package kz.eospatial.GeoForestry.models;
+
+import java.time.LocalDate;
+
+// Проекция только с колонками, нужными для ForestryMapper.toDto
+public interface ForestryView {
+    Long getId();
+    String getName();
+    String getRegion();
+    String getMapStyleUrl();
+    CoordinateArray getBoundaries();
+    CoordinateArray getCenter();
+    String getMapBoxToken();
+    LocalDate getTokenExpirationDate();
+    Long getVersion();
+}
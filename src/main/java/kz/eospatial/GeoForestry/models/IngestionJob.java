@@ -0,0 +1,73 @@
+package kz.eospatial.GeoForestry.models;
+
+import java.time.Instant;
+import java.util.UUID;
+
+// Фоновая задача загрузки геометрии лесничества
+public class IngestionJob {
+
+    public enum Status {
+        QUEUED,
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+
+    private final UUID id;
+    private final Long forestryId;
+    private final Instant createdAt;
+    private volatile Status status;
+    private volatile String message;
+    private volatile Instant finishedAt;
+
+    public IngestionJob(UUID id, Long forestryId) {
+        this.id = id;
+        this.forestryId = forestryId;
+        this.createdAt = Instant.now();
+        this.status = Status.QUEUED;
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public Long getForestryId() {
+        return forestryId;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public Instant getFinishedAt() {
+        return finishedAt;
+    }
+
+    public boolean isFinished() {
+        return status == Status.COMPLETED || status == Status.FAILED;
+    }
+
+    public void markRunning() {
+        this.status = Status.RUNNING;
+    }
+
+    public void markCompleted() {
+        this.message = "Geometry saved";
+        this.finishedAt = Instant.now();
+        this.status = Status.COMPLETED;
+    }
+
+    public void markFailed(String message) {
+        this.message = message;
+        this.finishedAt = Instant.now();
+        this.status = Status.FAILED;
+    }
+}
@@ -0,0 +1,46 @@
+package kz.eospatial.GeoForestry.models;
+
+import kz.eospatial.GeoForestry.dto.ForestryDto;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class TokenResolution {
+
+    public enum Status {
+        VALID,
+        EXPIRED,
+        NOT_FOUND
+    }
+
+    private final Status status;
+    private final ForestryDto forestry;
+
+    public static TokenResolution valid(ForestryDto forestry) {
+        return new TokenResolution(Status.VALID, forestry);
+    }
+
+    public static TokenResolution expired() {
+        return new TokenResolution(Status.EXPIRED, null);
+    }
+
+    public static TokenResolution notFound() {
+        return new TokenResolution(Status.NOT_FOUND, null);
+    }
+
+    public boolean isValid() {
+        return status == Status.VALID;
+    }
+
+    public TokenValidationResult toValidationResult() {
+        switch (status) {
+            case VALID:
+                return TokenValidationResult.valid();
+            case EXPIRED:
+                return TokenValidationResult.expired();
+            default:
+                return TokenValidationResult.notFound();
+        }
+    }
+}
@@ -8,17 +8,46 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
+
 public interface ForestryGeometriesRepository extends JpaRepository<ForestryGeometries, Long> {
 
     @Modifying
     @Query("UPDATE ForestryGeometries fg SET fg.geom = :geom WHERE fg.forestryId = :forestryId")
     void updateGeomByForestryId(@Param("forestryId") Long forestryId, @Param("geom") Geometry geom);
 
+    // Вставка или замена одним оператором: параллельные записи не создают второй строки для лесничества
+    @Modifying
+    @Query(value = "INSERT INTO forestry_geometries (forestry_id, geom) " +
+            "VALUES (:forestryId, ST_Multi(ST_GeomFromWKB(:wkb, 4326))) " +
+            "ON CONFLICT (forestry_id) DO UPDATE SET geom = EXCLUDED.geom", nativeQuery = true)
+    void upsertGeomByForestryId(@Param("forestryId") Long forestryId, @Param("wkb") byte[] wkb);
+
     @Modifying
     @Transactional
     @Query("DELETE FROM ForestryGeometries fg WHERE fg.forestryId = :forestryId")
     void deleteByForestryId(@Param("forestryId") Long forestryId);
 
     ForestryGeometries findByForestryId(Long forestryId);
-}
 
+    // Оператор && сравнивает охваты и может использовать пространственный индекс
+    @Query(value = "SELECT * FROM forestry_geometries " +
+            "WHERE geom && ST_MakeEnvelope(:minX, :minY, :maxX, :maxY, 4326)", nativeQuery = true)
+    List<ForestryGeometries> findIntersectingEnvelope(@Param("minX") double minX, @Param("minY") double minY,
+                                                      @Param("maxX") double maxX, @Param("maxY") double maxY);
+
+    // Геометрии, для которых ещё не построены упрощённые уровни
+    @Query(value = "SELECT * FROM forestry_geometries g " +
+            "WHERE g.geom && ST_MakeEnvelope(:minX, :minY, :maxX, :maxY, 4326) " +
+            "AND NOT EXISTS (SELECT 1 FROM forestry_geometry_levels l WHERE l.forestry_id = g.forestry_id)",
+            nativeQuery = true)
+    List<ForestryGeometries> findIntersectingEnvelopeWithoutLevels(@Param("minX") double minX, @Param("minY") double minY,
+                                                                   @Param("maxX") double maxX, @Param("maxY") double maxY);
+
+    // Только ID: геометрии не читаются. && отбирает кандидатов по GiST-индексу, ST_Intersects уточняет
+    @Query(value = "SELECT g.forestry_id FROM forestry_geometries g " +
+            "WHERE g.geom && ST_MakeEnvelope(:minX, :minY, :maxX, :maxY, 4326) " +
+            "AND ST_Intersects(g.geom, ST_MakeEnvelope(:minX, :minY, :maxX, :maxY, 4326))", nativeQuery = true)
+    List<Long> findForestryIdsIntersectingEnvelope(@Param("minX") double minX, @Param("minY") double minY,
+                                                   @Param("maxX") double maxX, @Param("maxY") double maxY);
+}
@@ -0,0 +1,27 @@
+package kz.eospatial.GeoForestry.repo;
+
+import kz.eospatial.GeoForestry.models.ForestryGeometryLevel;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface ForestryGeometryLevelRepository extends JpaRepository<ForestryGeometryLevel, Long> {
+
+    Optional<ForestryGeometryLevel> findByForestryIdAndLevel(Long forestryId, int level);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM ForestryGeometryLevel gl WHERE gl.forestryId = :forestryId")
+    void deleteByForestryId(@Param("forestryId") Long forestryId);
+
+    @Query(value = "SELECT * FROM forestry_geometry_levels " +
+            "WHERE level = :level AND geom && ST_MakeEnvelope(:minX, :minY, :maxX, :maxY, 4326)", nativeQuery = true)
+    List<ForestryGeometryLevel> findIntersectingEnvelope(@Param("level") int level,
+                                                         @Param("minX") double minX, @Param("minY") double minY,
+                                                         @Param("maxX") double maxX, @Param("maxY") double maxY);
+}
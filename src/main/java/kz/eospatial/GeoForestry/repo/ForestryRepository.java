@@ -1,16 +1,43 @@
 package kz.eospatial.GeoForestry.repo;
 
 import kz.eospatial.GeoForestry.models.Forestry;
+import kz.eospatial.GeoForestry.models.ForestryAdminView;
+import kz.eospatial.GeoForestry.models.ForestryTokenView;
+import kz.eospatial.GeoForestry.models.ForestryView;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface ForestryRepository extends JpaRepository<Forestry, Long> {
     Optional<Forestry> findByToken(String token);
+    Optional<ForestryView> findViewByToken(String token);
+    Optional<ForestryView> findViewById(Long id);
+
+    // SELECT ... FOR UPDATE: изменения геометрии одного лесничества выполняются строго по очереди
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT f FROM Forestry f WHERE f.id = :id")
+    Optional<Forestry> findForUpdateById(@Param("id") Long id);
+
+    // То же, но с немедленным увеличением версии: геометрия хранится в другой таблице,
+    // и без этого её изменение не меняло бы версию (и ETag) лесничества
+    @Lock(LockModeType.PESSIMISTIC_FORCE_INCREMENT)
+    @Query("SELECT f FROM Forestry f WHERE f.id = :id")
+    Optional<Forestry> findForGeometryUpdateById(@Param("id") Long id);
+    Optional<ForestryTokenView> findTokenViewById(Long id);
     Optional<Forestry> findByName(String name);
     Optional<Forestry> findByRegion(String name);
     boolean existsByName(String name);
@@ -19,4 +46,25 @@ public interface ForestryRepository extends JpaRepository<Forestry, Long> {
     List<Forestry> findAllByTokenExpirationDate(LocalDate date);
     List<Forestry> findAllByTokenExpirationDateBetween(LocalDate startDate, LocalDate endDate);
 
+    @Query("SELECT f.token FROM Forestry f WHERE f.token IS NOT NULL")
+    List<String> findAllTokens();
+
+    @Query("SELECT f.id AS id, f.token AS token, f.tokenExpirationDate AS tokenExpirationDate " +
+            "FROM Forestry f WHERE f.token IS NOT NULL")
+    List<ForestryTokenView> findAllTokenViews();
+
+    // Проекции для чтения: сущности не попадают в контекст персистентности
+    Optional<ForestryView> findViewByName(String name);
+    Optional<ForestryView> findViewByRegion(String region);
+    List<ForestryView> findViewsByTokenExpirationDate(LocalDate date);
+    List<ForestryView> findViewsByTokenExpirationDateBetween(LocalDate startDate, LocalDate endDate);
+    List<ForestryAdminView> findAdminViewsByIdIn(Collection<Long> ids);
+    List<ForestryAdminView> findAdminViewsByOrderByIdAsc();
+
+    // Keyset-пагинация: следующая страница после последнего полученного ID
+    List<ForestryAdminView> findAdminViewsByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+    // Потоковое чтение курсором JDBC; вызывать внутри транзакции и закрывать Stream
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "500"))
+    Stream<ForestryAdminView> streamAdminViewsByOrderByIdAsc();
 }
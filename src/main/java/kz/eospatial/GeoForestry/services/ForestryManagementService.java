@@ -2,6 +2,8 @@ package kz.eospatial.GeoForestry.services;
 
 import jakarta.persistence.EntityNotFoundException;
 import kz.eospatial.GeoForestry.dto.ForestryDto;
+import kz.eospatial.GeoForestry.events.ForestryChangedEvent;
+import kz.eospatial.GeoForestry.events.ForestryGeometryChangedEvent;
 import kz.eospatial.GeoForestry.exeptions.ForestryNameExistsException;
 import kz.eospatial.GeoForestry.mappers.ForestryMapper;
 import kz.eospatial.GeoForestry.models.Forestry;
@@ -11,22 +13,26 @@ import kz.eospatial.GeoForestry.repo.ForestryGeometriesRepository;
 import kz.eospatial.GeoForestry.repo.ForestryRepository;
 import kz.eospatial.GeoForestry.utils.GeoJsonUtils;
 import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.geom.GeometryFactory;
 import org.locationtech.jts.geom.MultiPolygon;
 import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.io.WKBWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
+import java.io.InputStream;
 import java.util.AbstractMap;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 @Service
@@ -38,16 +44,22 @@ public class ForestryManagementService {
     private final TokenService tokenService;
     private final ForestryMapper forestryMapper;
     private final ForestryGeometriesRepository forestryGeometriesRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final GeometryPyramidService geometryPyramidService;
 
     @Autowired
     public ForestryManagementService(ForestryRepository forestryRepository,
                                      TokenService tokenService,
                                      ForestryMapper forestryMapper,
-                                     ForestryGeometriesRepository forestryGeometriesRepository) {
+                                     ForestryGeometriesRepository forestryGeometriesRepository,
+                                     ApplicationEventPublisher eventPublisher,
+                                     GeometryPyramidService geometryPyramidService) {
         this.forestryRepository = forestryRepository;
         this.tokenService = tokenService;
         this.forestryMapper = forestryMapper;
         this.forestryGeometriesRepository = forestryGeometriesRepository;
+        this.eventPublisher = eventPublisher;
+        this.geometryPyramidService = geometryPyramidService;
     }
 
 //    // Метод для добавления лесничества с byte[]
@@ -57,11 +69,11 @@ public class ForestryManagementService {
 
     // Метод для добавления лесничества с MultipartFile
     public AbstractMap.SimpleEntry<ForestryDto, String> addForestry(ForestryDto forestryDto, MultipartFile geoJsonFile) throws IOException {
-        return processForestry(forestryDto, geoJsonFile != null ? geoJsonFile.getBytes() : null);
+        return processForestry(forestryDto, geoJsonFile);
     }
 
     // Унифицированный метод для обработки данных
-    private AbstractMap.SimpleEntry<ForestryDto, String> processForestry(ForestryDto forestryDto, byte[] geoJsonData) throws IOException {
+    private AbstractMap.SimpleEntry<ForestryDto, String> processForestry(ForestryDto forestryDto, MultipartFile geoJsonFile) throws IOException {
         log.info("Received request to add forestry: {}", forestryDto);
 
         if (forestryRepository.existsByName(forestryDto.getName())) {
@@ -69,23 +81,18 @@ public class ForestryManagementService {
         }
 
         Forestry forestry = forestryMapper.toModel(forestryDto);
-        // Генерируем токен и сохраняем его в сущности
-        String generatedToken = tokenService.generateToken();
-        forestry.setToken(generatedToken);
         Forestry savedForestry = forestryRepository.save(forestry);
         log.info("New forestry ID: {}", savedForestry.getId());
 
-        // Обработка геометрии (GeoJSON)
-        if (geoJsonData != null && geoJsonData.length > 0) {
-            String geoJson = new String(geoJsonData, StandardCharsets.UTF_8);
-            log.info("GeoJSON content: {}", geoJson);
-            MultiPolygon multiPolygon = GeoJsonUtils.parseGeoJson(geoJson);
+        // Генерируем токен и сохраняем его в сущности (подписанный токен содержит ID лесничества)
+        String generatedToken = tokenService.generateToken(savedForestry.getId(), savedForestry.getTokenExpirationDate());
+        savedForestry.setToken(generatedToken);
+        eventPublisher.publishEvent(new ForestryChangedEvent(savedForestry.getId(), generatedToken));
 
+        // Обработка геометрии (GeoJSON)
+        if (geoJsonFile != null && !geoJsonFile.isEmpty()) {
             // Сохраняем геометрию в базе данных
-            ForestryGeometries forestryGeometries = new ForestryGeometries();
-            forestryGeometries.setForestryId(savedForestry.getId());
-            forestryGeometries.setGeom(multiPolygon);
-            forestryGeometriesRepository.save(forestryGeometries);
+            saveGeometry(savedForestry.getId(), readGeometry(geoJsonFile));
         } else {
             log.info("GeoJSON data not provided, skipping geometry processing");
         }
@@ -99,8 +106,12 @@ public class ForestryManagementService {
 
     @Transactional
     public ForestryDto updateForestry(Long id, ForestryDto forestryDto, MultipartFile geoJsonFile) throws IOException {
-        // Поиск существующего лесничества
-        Forestry existingForestry = forestryRepository.findById(id)
+        // Поиск существующего лесничества (строка блокируется до конца транзакции).
+        // Новая геометрия меняет представление, даже если поля лесничества остались прежними
+        boolean hasGeometry = geoJsonFile != null && !geoJsonFile.isEmpty();
+        Forestry existingForestry = (hasGeometry
+                ? forestryRepository.findForGeometryUpdateById(id)
+                : forestryRepository.findForUpdateById(id))
                 .orElseThrow(() -> new EntityNotFoundException("Forestry not found with ID: " + id));
 
         log.info("Updating forestry: existing name = {}, new name = {}", existingForestry.getName(), forestryDto.getName());
@@ -124,28 +135,13 @@ public class ForestryManagementService {
         existingForestry.setMapBoxToken(forestryDto.getMapBoxToken());
         existingForestry.setTokenExpirationDate(forestryDto.getTokenExpirationDate());
 
-        // Сохранение обновлённого лесничества
-        Forestry updatedForestry = forestryRepository.save(existingForestry);
+        // Сохранение обновлённого лесничества; flush увеличивает версию до формирования ответа
+        Forestry updatedForestry = forestryRepository.saveAndFlush(existingForestry);
+        eventPublisher.publishEvent(new ForestryChangedEvent(id, updatedForestry.getToken()));
 
         // Обновление геометрии (если передан GeoJSON файл)
-        if (geoJsonFile != null && !geoJsonFile.isEmpty()) {
-            String geoJson = new String(geoJsonFile.getBytes(), StandardCharsets.UTF_8);
-            log.info("Updating GeoJSON content: {}", geoJson);
-            MultiPolygon multiPolygon = GeoJsonUtils.parseGeoJson(geoJson);
-
-            ForestryGeometries geometry = forestryGeometriesRepository.findByForestryId(id);
-            if (geometry != null) {
-                // Обновление существующей геометрии
-                forestryGeometriesRepository.updateGeomByForestryId(id, multiPolygon);
-                log.info("Geometry updated for forestry ID: {}", id);
-            } else {
-                // Если геометрия не существовала — создание новой записи
-                ForestryGeometries newGeometry = new ForestryGeometries();
-                newGeometry.setForestryId(id);
-                newGeometry.setGeom(multiPolygon);
-                forestryGeometriesRepository.save(newGeometry);
-                log.info("New geometry created for forestry ID: {}", id);
-            }
+        if (hasGeometry) {
+            saveGeometry(id, readGeometry(geoJsonFile));
         }
 
         log.info("Forestry updated with ID: {}", id);
@@ -157,43 +153,71 @@ public class ForestryManagementService {
     @Transactional
     public ForestryDto addGeoJsonToForestry(Long id, MultipartFile geoJsonFile) throws IOException {
         // Поиск существующего лесничества
-        Forestry existingForestry = forestryRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException("Forestry not found with ID: " + id));
-
-        // Обновление геометрии
-        if (geoJsonFile != null && !geoJsonFile.isEmpty()) {
-            String geoJson = new String(geoJsonFile.getBytes(), StandardCharsets.UTF_8);
-            log.info("Adding GeoJSON content for forestry ID {}: {}", id, geoJson);
-            MultiPolygon multiPolygon = GeoJsonUtils.parseGeoJson(geoJson);
-
-            ForestryGeometries geometry = forestryGeometriesRepository.findByForestryId(id);
-            if (geometry != null) {
-                // Обновление существующей геометрии
-                forestryGeometriesRepository.updateGeomByForestryId(id, multiPolygon);
-                log.info("Geometry updated for forestry ID: {}", id);
-            } else {
-                // Если геометрия не существовала — создание новой записи
-                ForestryGeometries newGeometry = new ForestryGeometries();
-                newGeometry.setForestryId(id);
-                newGeometry.setGeom(multiPolygon);
-                forestryGeometriesRepository.save(newGeometry);
-                log.info("New geometry created for forestry ID: {}", id);
-            }
-        } else {
+        if (!forestryRepository.existsById(id)) {
+            throw new EntityNotFoundException("Forestry not found with ID: " + id);
+        }
+        if (geoJsonFile == null || geoJsonFile.isEmpty()) {
             throw new IllegalArgumentException("GeoJSON файл не предоставлен.");
         }
+        log.info("Adding GeoJSON for forestry ID {}", id);
+        return applyGeometry(id, readGeometry(geoJsonFile));
+    }
 
+    // Сохранение уже разобранной геометрии (используется и фоновой загрузкой)
+    @Transactional
+    public ForestryDto applyGeometry(Long id, MultiPolygon multiPolygon) {
+        // Блокировка строки лесничества упорядочивает параллельные загрузки геометрии и сразу поднимает версию
+        Forestry existingForestry = forestryRepository.findForGeometryUpdateById(id)
+                .orElseThrow(() -> new EntityNotFoundException("Forestry not found with ID: " + id));
+
+        saveGeometry(id, multiPolygon);
+
+        eventPublisher.publishEvent(new ForestryChangedEvent(id, existingForestry.getToken()));
         log.info("Forestry GeoJSON updated for ID: {}", id);
 
         // Конвертация сущности обратно в DTO
         return forestryMapper.toDtoWithToken(existingForestry);
     }
 
+    private void saveGeometry(Long id, MultiPolygon multiPolygon) {
+        Envelope previousEnvelope = envelopeOf(forestryGeometriesRepository.findByForestryId(id));
+        // Вставка новой или замена существующей геометрии одним INSERT ... ON CONFLICT
+        forestryGeometriesRepository.upsertGeomByForestryId(id, new WKBWriter().write(multiPolygon));
+        log.info("Geometry saved for forestry ID: {}", id);
+        // Упрощённые уровни пересчитываются в той же транзакции, что и исходная геометрия
+        geometryPyramidService.rebuild(id, multiPolygon);
+        eventPublisher.publishEvent(new ForestryGeometryChangedEvent(id, previousEnvelope, multiPolygon));
+    }
+
+    // Копия охвата: сущность может быть изменена после публикации события
+    private static Envelope envelopeOf(ForestryGeometries geometry) {
+        return geometry != null && geometry.getGeom() != null
+                ? new Envelope(geometry.getGeom().getEnvelopeInternal())
+                : null;
+    }
+
+    // GeoJSON читается потоком прямо из загруженного файла, без копирования в byte[] и String
+    private MultiPolygon readGeometry(MultipartFile geoJsonFile) throws IOException {
+        log.info("Parsing GeoJSON file {} ({} bytes)", geoJsonFile.getOriginalFilename(), geoJsonFile.getSize());
+        try (InputStream geoJson = geoJsonFile.getInputStream()) {
+            return GeoJsonUtils.parseGeoJson(geoJson);
+        }
+    }
 
     // Метод для удаления GeoJSON для лесничества
     public void deleteForestryGeoJson(Long id) {
+        // Блокировка строки лесничества, чтобы удаление не пересеклось с загрузкой геометрии.
+        // Версия поднимается сразу, чтобы закэшированный GeoJSON геометрии больше не отдавался
+        Optional<Forestry> forestry = forestryRepository.findForGeometryUpdateById(id);
+
         // Удаление геометрии, связанной с лесничеством
+        Envelope previousEnvelope = envelopeOf(forestryGeometriesRepository.findByForestryId(id));
         forestryGeometriesRepository.deleteByForestryId(id);
+        geometryPyramidService.delete(id);
+        if (previousEnvelope != null) {
+            eventPublisher.publishEvent(new ForestryGeometryChangedEvent(id, previousEnvelope, null));
+        }
+        forestry.ifPresent(existing -> eventPublisher.publishEvent(new ForestryChangedEvent(id, existing.getToken())));
         log.info("Forestry GeoJSON deleted for forestry ID: {}", id);
     }
 
@@ -206,11 +230,14 @@ public class ForestryManagementService {
                     if (geometry != null) {
                         // Удаление геометрии, связанной с лесничеством
                         forestryGeometriesRepository.deleteByForestryId(id);
+                        eventPublisher.publishEvent(new ForestryGeometryChangedEvent(id, envelopeOf(geometry), null));
                         log.info("Deleted geometry for forestry with ID: {}", id);
                     }
+                    geometryPyramidService.delete(id);
 
                     // Удаление лесничества
                     forestryRepository.delete(forestry);
+                    eventPublisher.publishEvent(new ForestryChangedEvent(id, forestry.getToken()));
                     log.info("Deleted forestry with ID: {}", id);
 
                     return true;
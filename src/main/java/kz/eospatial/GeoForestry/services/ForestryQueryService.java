@@ -1,79 +1,125 @@
 package kz.eospatial.GeoForestry.services;
 
 import jakarta.persistence.EntityNotFoundException;
+import kz.eospatial.GeoForestry.cache.ForestryTokenCache;
 import kz.eospatial.GeoForestry.dto.ForestryDto;
 import kz.eospatial.GeoForestry.mappers.ForestryMapper;
-import kz.eospatial.GeoForestry.models.Forestry;
+import kz.eospatial.GeoForestry.models.ForestryAdminView;
+import kz.eospatial.GeoForestry.models.ForestryView;
+import kz.eospatial.GeoForestry.repo.ForestryGeometriesRepository;
 import kz.eospatial.GeoForestry.repo.ForestryRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+// Только чтение: данные берутся проекциями, в транзакциях readOnly Hibernate не делает снимков и dirty checking
 @Service
+@Transactional(readOnly = true)
 public class ForestryQueryService {
 
     private static final Logger log = LoggerFactory.getLogger(ForestryQueryService.class);
     private final ForestryRepository forestryRepository;
     private final ForestryMapper forestryMapper;
+    private final ForestryTokenCache forestryTokenCache;
+    private final ForestryGeometriesRepository forestryGeometriesRepository;
 
     @Autowired
-    public ForestryQueryService(ForestryRepository forestryRepository, ForestryMapper forestryMapper) {
+    public ForestryQueryService(ForestryRepository forestryRepository, ForestryMapper forestryMapper,
+                                ForestryTokenCache forestryTokenCache,
+                                ForestryGeometriesRepository forestryGeometriesRepository) {
         this.forestryRepository = forestryRepository;
         this.forestryMapper = forestryMapper;
+        this.forestryTokenCache = forestryTokenCache;
+        this.forestryGeometriesRepository = forestryGeometriesRepository;
     }
 
+    // Полный список (без cursor и limit) для клиентов, не перешедших на постраничное чтение
     public List<ForestryDto> getAllForestries() {
         log.info("Retrieving all forestries");
-        List<ForestryDto> forestryDtos = forestryRepository.findAll().stream()
+        return forestryRepository.findAdminViewsByOrderByIdAsc().stream()
+                .map(forestryMapper::toDtoWithToken)
+                .collect(Collectors.toList());
+    }
+
+    // Страница лесничеств по возрастанию ID, начиная после cursor (null — с начала)
+    public List<ForestryDto> getForestriesPage(Long cursor, int limit) {
+        log.info("Retrieving forestries after ID {} (limit {})", cursor, limit);
+        return forestryRepository.findAdminViewsByIdGreaterThanOrderByIdAsc(cursor != null ? cursor : 0L, Limit.of(limit)).stream()
+                .map(forestryMapper::toDtoWithToken)
+                .collect(Collectors.toList());
+    }
+
+    // Все лесничества по одному: строки читаются курсором в проекцию, сущности не создаются,
+    // поэтому объём памяти не зависит от числа лесничеств
+    public void streamAllForestries(Consumer<ForestryDto> consumer) {
+        log.info("Streaming all forestries");
+        try (Stream<ForestryAdminView> forestries = forestryRepository.streamAdminViewsByOrderByIdAsc()) {
+            forestries.forEach(forestry -> consumer.accept(forestryMapper.toDtoWithToken(forestry)));
+        }
+    }
+
+    // Лесничества, геометрия которых пересекает область просмотра карты
+    public List<ForestryDto> getForestriesInBbox(double minLon, double minLat, double maxLon, double maxLat) {
+        if (minLon < -180 || maxLon > 180 || minLat < -90 || maxLat > 90 || minLon > maxLon || minLat > maxLat) {
+            throw new IllegalArgumentException("Invalid bounding box: " + minLon + "," + minLat + "," + maxLon + "," + maxLat);
+        }
+        log.info("Retrieving forestries in bbox {},{},{},{}", minLon, minLat, maxLon, maxLat);
+        List<Long> ids = forestryGeometriesRepository.findForestryIdsIntersectingEnvelope(minLon, minLat, maxLon, maxLat);
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return forestryRepository.findAdminViewsByIdIn(ids).stream()
                 .map(forestryMapper::toDtoWithToken)
                 .collect(Collectors.toList());
-        log.info(forestryDtos.toString());
-        return forestryDtos;
     }
 
     public ForestryDto getForestryById(Long id) {
         log.info("Retrieving forestry with ID: {}", id);
-        return forestryRepository.findById(id)
+        return forestryRepository.findViewById(id)
                 .map(forestryMapper::toDto)
                 .orElseThrow(() -> new EntityNotFoundException("Forestry not found with id: " + id));
     }
 
     public ForestryDto getForestryByName(String name) {
         log.info("Retrieving forestry with name: {}", name);
-        return forestryRepository.findByName(name)
+        return forestryRepository.findViewByName(name)
                 .map(forestryMapper::toDto)
                 .orElseThrow(() -> new EntityNotFoundException("Forestry not found with name: " + name));
     }
 
     public ForestryDto getForestryByRegion(String region) {
         log.info("Retrieving forestry with region: {}", region);
-        return forestryRepository.findByRegion(region)
+        return forestryRepository.findViewByRegion(region)
                 .map(forestryMapper::toDto)
                 .orElseThrow(() -> new EntityNotFoundException("Forestry not found with name: " + region));
     }
 
     public Optional<ForestryDto> getForestryByToken(String token) {
         log.info("Retrieving forestry with token: {}", token);
-        Optional<ForestryDto> list = forestryRepository.findByToken(token)
-                .map(forestryMapper::toDto);
+        Optional<ForestryDto> list = forestryTokenCache.get(token)
+                .map(ForestryTokenCache.Entry::getForestry);
         log.info(list.toString());
         return list;
     }
 
     public List<ForestryDto> getForestriesByTokenExpirationDate(LocalDate startDate, LocalDate endDate) {
         log.info("Retrieving all forestries with token expiration date range: {} to {}", startDate, endDate);
-        List<Forestry> forestries;
+        List<ForestryView> forestries;
         if (startDate != null && endDate != null) {
-            forestries = forestryRepository.findAllByTokenExpirationDateBetween(startDate, endDate);
+            forestries = forestryRepository.findViewsByTokenExpirationDateBetween(startDate, endDate);
         } else if (startDate != null) {
-            forestries = forestryRepository.findAllByTokenExpirationDate(startDate);
+            forestries = forestryRepository.findViewsByTokenExpirationDate(startDate);
         } else {
             forestries = new ArrayList<>();
         }
@@ -0,0 +1,161 @@
+package kz.eospatial.GeoForestry.services;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityNotFoundException;
+import kz.eospatial.GeoForestry.exeptions.IngestionJobConflictException;
+import kz.eospatial.GeoForestry.exeptions.IngestionQueueFullException;
+import kz.eospatial.GeoForestry.models.IngestionJob;
+import kz.eospatial.GeoForestry.repo.ForestryRepository;
+import kz.eospatial.GeoForestry.utils.GeoJsonUtils;
+import org.locationtech.jts.geom.MultiPolygon;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Разбор и сохранение геометрии на отдельном ограниченном пуле потоков, а не на потоке запроса
+@Service
+public class GeometryIngestionService {
+
+    private static final Logger log = LoggerFactory.getLogger(GeometryIngestionService.class);
+    private final ForestryManagementService forestryManagementService;
+    private final ForestryRepository forestryRepository;
+    private final ThreadPoolExecutor executor;
+    private final Duration jobRetention;
+    private final Map<UUID, IngestionJob> jobs = new ConcurrentHashMap<>();
+    // Не более одной незавершённой задачи на лесничество: иначе задачи гонялись бы за одну геометрию
+    private final Map<Long, UUID> activeJobs = new ConcurrentHashMap<>();
+
+    public GeometryIngestionService(ForestryManagementService forestryManagementService,
+                                    ForestryRepository forestryRepository,
+                                    @Value("${forestry.ingestion.workers:2}") int workers,
+                                    @Value("${forestry.ingestion.queue-capacity:20}") int queueCapacity,
+                                    @Value("${forestry.ingestion.job-retention-minutes:60}") long jobRetentionMinutes) {
+        this.forestryManagementService = forestryManagementService;
+        this.forestryRepository = forestryRepository;
+        this.jobRetention = Duration.ofMinutes(jobRetentionMinutes);
+        AtomicInteger threadNumber = new AtomicInteger();
+        // Ограниченная очередь: при переполнении задача отклоняется, а клиент получает 503
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "geometry-ingestion-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    public IngestionJob submit(Long forestryId, MultipartFile geoJsonFile) throws IOException {
+        if (geoJsonFile == null || geoJsonFile.isEmpty()) {
+            throw new IllegalArgumentException("GeoJSON файл не предоставлен.");
+        }
+        if (!forestryRepository.existsById(forestryId)) {
+            throw new EntityNotFoundException("Forestry not found with ID: " + forestryId);
+        }
+        purgeFinishedJobs();
+
+        IngestionJob job = new IngestionJob(UUID.randomUUID(), forestryId);
+        UUID activeJobId = activeJobs.putIfAbsent(forestryId, job.getId());
+        if (activeJobId != null) {
+            log.warn("Geometry ingestion job {} is still active for forestry ID: {}", activeJobId, forestryId);
+            throw new IngestionJobConflictException("Geometry ingestion job " + activeJobId
+                    + " is still in progress for this forestry, please retry after it finishes.");
+        }
+
+        // Временный файл multipart удаляется после завершения запроса, поэтому копируем загрузку
+        Path upload = null;
+        try {
+            upload = Files.createTempFile("geojson-", ".json");
+            geoJsonFile.transferTo(upload);
+        } catch (IOException | RuntimeException e) {
+            activeJobs.remove(forestryId, job.getId());
+            deleteUpload(upload);
+            throw e;
+        }
+
+        jobs.put(job.getId(), job);
+        Path queuedUpload = upload;
+        try {
+            executor.execute(() -> run(job, queuedUpload));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            activeJobs.remove(forestryId, job.getId());
+            deleteUpload(upload);
+            log.warn("Geometry ingestion queue is full, rejecting upload for forestry ID: {}", forestryId);
+            throw new IngestionQueueFullException("Geometry ingestion queue is full, please retry later.");
+        }
+        log.info("Queued geometry ingestion job {} for forestry ID: {}", job.getId(), forestryId);
+        return job;
+    }
+
+    public Optional<IngestionJob> getJob(UUID jobId) {
+        return Optional.ofNullable(jobs.get(jobId));
+    }
+
+    public Map<String, Object> stats() {
+        return Map.of(
+                "active", executor.getActiveCount(),
+                "queued", executor.getQueue().size(),
+                "remainingCapacity", executor.getQueue().remainingCapacity(),
+                "completed", executor.getCompletedTaskCount());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void run(IngestionJob job, Path upload) {
+        job.markRunning();
+        try {
+            MultiPolygon multiPolygon;
+            try (InputStream geoJson = Files.newInputStream(upload)) {
+                multiPolygon = GeoJsonUtils.parseGeoJson(geoJson);
+            }
+            // Транзакция открывается только на время записи в базу
+            forestryManagementService.applyGeometry(job.getForestryId(), multiPolygon);
+            job.markCompleted();
+            log.info("Geometry ingestion job {} completed for forestry ID: {}", job.getId(), job.getForestryId());
+        } catch (Exception e) {
+            job.markFailed(e.getMessage());
+            log.error("Geometry ingestion job {} failed for forestry ID: {}", job.getId(), job.getForestryId(), e);
+        } finally {
+            activeJobs.remove(job.getForestryId(), job.getId());
+            deleteUpload(upload);
+        }
+    }
+
+    private void deleteUpload(Path upload) {
+        if (upload == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(upload);
+        } catch (IOException e) {
+            log.warn("Unable to delete temporary upload {}", upload, e);
+        }
+    }
+
+    private void purgeFinishedJobs() {
+        Instant threshold = Instant.now().minus(jobRetention);
+        jobs.values().removeIf(job -> job.isFinished() && job.getFinishedAt().isBefore(threshold));
+    }
+}
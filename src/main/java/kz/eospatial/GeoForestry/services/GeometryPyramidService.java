@@ -0,0 +1,127 @@
+package kz.eospatial.GeoForestry.services;
+
+import kz.eospatial.GeoForestry.models.ForestryGeometries;
+import kz.eospatial.GeoForestry.models.ForestryGeometryLevel;
+import kz.eospatial.GeoForestry.repo.ForestryGeometriesRepository;
+import kz.eospatial.GeoForestry.repo.ForestryGeometryLevelRepository;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.MultiPolygon;
+import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.simplify.TopologyPreservingSimplifier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+// Пирамида упрощённых геометрий: уровень 0 — исходная геометрия, далее всё более грубые копии
+@Service
+@Transactional
+public class GeometryPyramidService {
+
+    private static final Logger log = LoggerFactory.getLogger(GeometryPyramidService.class);
+
+    public static final int FULL_RESOLUTION = 0;
+
+    // Допуски упрощения в градусах для уровней 1..n: участок (~10 м), район (~100 м), страна (~1 км)
+    private static final double[] TOLERANCES = {0.0001, 0.001, 0.01};
+
+    // Размер тайла в пикселях, от него считается размер пикселя на заданном зуме
+    private static final int TILE_SIZE = 256;
+
+    private final ForestryGeometriesRepository forestryGeometriesRepository;
+    private final ForestryGeometryLevelRepository forestryGeometryLevelRepository;
+
+    public GeometryPyramidService(ForestryGeometriesRepository forestryGeometriesRepository,
+                                  ForestryGeometryLevelRepository forestryGeometryLevelRepository) {
+        this.forestryGeometriesRepository = forestryGeometriesRepository;
+        this.forestryGeometryLevelRepository = forestryGeometryLevelRepository;
+    }
+
+    // Пересчёт всех уровней после записи исходной геометрии
+    public void rebuild(Long forestryId, MultiPolygon geometry) {
+        forestryGeometryLevelRepository.deleteByForestryId(forestryId);
+        forestryGeometryLevelRepository.flush();
+
+        List<ForestryGeometryLevel> levels = new ArrayList<>(TOLERANCES.length);
+        for (int i = 0; i < TOLERANCES.length; i++) {
+            MultiPolygon simplified = simplify(geometry, TOLERANCES[i]);
+            levels.add(new ForestryGeometryLevel(forestryId, i + 1, TOLERANCES[i], simplified));
+            log.info("Geometry level {} for forestry ID {}: {} of {} vertices",
+                    i + 1, forestryId, simplified.getNumPoints(), geometry.getNumPoints());
+        }
+        forestryGeometryLevelRepository.saveAll(levels);
+    }
+
+    public void delete(Long forestryId) {
+        forestryGeometryLevelRepository.deleteByForestryId(forestryId);
+    }
+
+    // Самый грубый уровень, допуск которого не превышает размер пикселя на данном зуме
+    public int levelForZoom(int zoom) {
+        double pixelSize = 360.0 / (TILE_SIZE * Math.pow(2, Math.max(zoom, 0)));
+        int level = FULL_RESOLUTION;
+        for (int i = 0; i < TOLERANCES.length; i++) {
+            if (TOLERANCES[i] <= pixelSize) {
+                level = i + 1;
+            }
+        }
+        return level;
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<MultiPolygon> getGeometry(Long forestryId, int level) {
+        if (level != FULL_RESOLUTION) {
+            Optional<ForestryGeometryLevel> simplified =
+                    forestryGeometryLevelRepository.findByForestryIdAndLevel(forestryId, level);
+            if (simplified.isPresent()) {
+                return Optional.of(simplified.get().getGeom());
+            }
+            // Уровни ещё не построены (геометрия загружена до появления пирамиды) — отдаём исходную
+            log.debug("Geometry level {} missing for forestry ID {}, falling back to full resolution", level, forestryId);
+        }
+        return Optional.ofNullable(forestryGeometriesRepository.findByForestryId(forestryId))
+                .map(ForestryGeometries::getGeom);
+    }
+
+    // Геометрии заданного уровня, охват которых пересекает envelope (ключ — ID лесничества)
+    @Transactional(readOnly = true)
+    public Map<Long, MultiPolygon> findIntersecting(int level, Envelope envelope) {
+        Map<Long, MultiPolygon> result = new LinkedHashMap<>();
+        if (level == FULL_RESOLUTION) {
+            forestryGeometriesRepository.findIntersectingEnvelope(
+                            envelope.getMinX(), envelope.getMinY(), envelope.getMaxX(), envelope.getMaxY())
+                    .forEach(geometry -> result.put(geometry.getForestryId(), geometry.getGeom()));
+            return result;
+        }
+        forestryGeometryLevelRepository.findIntersectingEnvelope(
+                        level, envelope.getMinX(), envelope.getMinY(), envelope.getMaxX(), envelope.getMaxY())
+                .forEach(geometry -> result.put(geometry.getForestryId(), geometry.getGeom()));
+        forestryGeometriesRepository.findIntersectingEnvelopeWithoutLevels(
+                        envelope.getMinX(), envelope.getMinY(), envelope.getMaxX(), envelope.getMaxY())
+                .forEach(geometry -> result.put(geometry.getForestryId(), geometry.getGeom()));
+        return result;
+    }
+
+    private MultiPolygon simplify(MultiPolygon geometry, double tolerance) {
+        Geometry simplified = TopologyPreservingSimplifier.simplify(geometry, tolerance);
+        if (simplified instanceof MultiPolygon multiPolygon) {
+            return multiPolygon;
+        }
+        List<Polygon> polygons = new ArrayList<>();
+        for (int i = 0; i < simplified.getNumGeometries(); i++) {
+            if (simplified.getGeometryN(i) instanceof Polygon polygon && !polygon.isEmpty()) {
+                polygons.add(polygon);
+            }
+        }
+        MultiPolygon result = geometry.getFactory().createMultiPolygon(polygons.toArray(new Polygon[0]));
+        result.setSRID(geometry.getSRID());
+        return result;
+    }
+}
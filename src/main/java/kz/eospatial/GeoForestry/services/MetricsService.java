@@ -0,0 +1,63 @@
+package kz.eospatial.GeoForestry.services;
+
+import kz.eospatial.GeoForestry.cache.ForestryResponseCache;
+import kz.eospatial.GeoForestry.cache.ForestryTokenCache;
+import kz.eospatial.GeoForestry.cache.TokenBloomFilter;
+import kz.eospatial.GeoForestry.cache.VectorTileCache;
+import kz.eospatial.GeoForestry.config.jwt.VerifiedJwtCache;
+import kz.eospatial.GeoForestry.spatial.ForestrySpatialIndex;
+import kz.eospatial.GeoForestry.spatial.GridCellIndex;
+import kz.eospatial.GeoForestry.spatial.IntersectionService;
+import kz.eospatial.GeoForestry.spatial.PointClassificationService;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Service
+public class MetricsService {
+
+    private final ForestryTokenCache forestryTokenCache;
+    private final TokenBloomFilter tokenBloomFilter;
+    private final ForestryResponseCache forestryResponseCache;
+    private final VerifiedJwtCache verifiedJwtCache;
+    private final GeometryIngestionService geometryIngestionService;
+    private final VectorTileCache vectorTileCache;
+    private final ForestrySpatialIndex forestrySpatialIndex;
+    private final PointClassificationService pointClassificationService;
+    private final GridCellIndex gridCellIndex;
+    private final IntersectionService intersectionService;
+
+    public MetricsService(ForestryTokenCache forestryTokenCache, TokenBloomFilter tokenBloomFilter,
+                          ForestryResponseCache forestryResponseCache, VerifiedJwtCache verifiedJwtCache,
+                          GeometryIngestionService geometryIngestionService, VectorTileCache vectorTileCache,
+                          ForestrySpatialIndex forestrySpatialIndex,
+                          PointClassificationService pointClassificationService, GridCellIndex gridCellIndex,
+                          IntersectionService intersectionService) {
+        this.forestryTokenCache = forestryTokenCache;
+        this.tokenBloomFilter = tokenBloomFilter;
+        this.forestryResponseCache = forestryResponseCache;
+        this.verifiedJwtCache = verifiedJwtCache;
+        this.geometryIngestionService = geometryIngestionService;
+        this.vectorTileCache = vectorTileCache;
+        this.forestrySpatialIndex = forestrySpatialIndex;
+        this.pointClassificationService = pointClassificationService;
+        this.gridCellIndex = gridCellIndex;
+        this.intersectionService = intersectionService;
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("forestryTokenCache", forestryTokenCache.stats());
+        metrics.put("tokenFilter", tokenBloomFilter.stats());
+        metrics.put("forestryResponseCache", forestryResponseCache.stats());
+        metrics.put("verifiedJwtCache", verifiedJwtCache.stats());
+        metrics.put("geometryIngestion", geometryIngestionService.stats());
+        metrics.put("vectorTileCache", vectorTileCache.stats());
+        metrics.put("spatialIndex", forestrySpatialIndex.stats());
+        metrics.put("pointClassification", pointClassificationService.stats());
+        metrics.put("gridCellIndex", gridCellIndex.stats());
+        metrics.put("perimeterIntersection", intersectionService.stats());
+        return metrics;
+    }
+}
@@ -0,0 +1,218 @@
+package kz.eospatial.GeoForestry.services;
+
+import jakarta.annotation.PostConstruct;
+import kz.eospatial.GeoForestry.events.ForestryChangedEvent;
+import kz.eospatial.GeoForestry.models.ForestryTokenView;
+import kz.eospatial.GeoForestry.models.TokenResolution;
+import kz.eospatial.GeoForestry.repo.ForestryRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Подписанные токены лесничеств вида v1.<id>.<срок действия>.<поколение>.<подпись>.
+// Поддельные, отозванные и просроченные токены отклоняются без обращения к базе.
+@Service
+public class SignedTokenService {
+
+    private static final Logger log = LoggerFactory.getLogger(SignedTokenService.class);
+    private static final String PREFIX = "v1.";
+    private static final int SIGNATURE_BYTES = 16;
+
+    private final ForestryRepository forestryRepository;
+    private final boolean enabled;
+    private final String signingKey;
+
+    // Текущее поколение и срок действия токена каждого лесничества
+    private final Map<Long, TokenState> states = new ConcurrentHashMap<>();
+    private final Map<Long, Long> issuedGenerations = new ConcurrentHashMap<>();
+    private ThreadLocal<Mac> mac;
+
+    public SignedTokenService(ForestryRepository forestryRepository,
+                              @Value("${forestry.token.format:uuid}") String tokenFormat,
+                              @Value("${forestry.token.signing-key:}") String signingKey) {
+        this.forestryRepository = forestryRepository;
+        this.enabled = "signed".equalsIgnoreCase(tokenFormat);
+        this.signingKey = signingKey;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (signingKey.isEmpty()) {
+            if (enabled) {
+                throw new IllegalStateException("forestry.token.signing-key must be set for signed forestry tokens");
+            }
+            return;
+        }
+        SecretKeySpec key = new SecretKeySpec(Base64.getDecoder().decode(signingKey), "HmacSHA256");
+        mac = ThreadLocal.withInitial(() -> {
+            try {
+                Mac instance = Mac.getInstance("HmacSHA256");
+                instance.init(key);
+                return instance;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("HmacSHA256 is not available", e);
+            }
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadStates() {
+        if (mac == null) {
+            return;
+        }
+        for (ForestryTokenView view : forestryRepository.findAllTokenViews()) {
+            register(view);
+        }
+        log.info("Loaded signed token state for {} forestries", states.size());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isSigned(String token) {
+        return mac != null && token != null && token.startsWith(PREFIX);
+    }
+
+    public String issue(Long forestryId, LocalDate expirationDate) {
+        // Поколение растёт монотонно, даже если предыдущий токен ещё не зафиксирован в базе
+        long generation = issuedGenerations.compute(forestryId, (id, lastIssued) -> {
+            TokenState current = states.get(id);
+            long committed = current != null ? current.generation : 0;
+            return Math.max(lastIssued != null ? lastIssued : 0, committed) + 1;
+        });
+        long expiration = expirationDate != null ? expirationDate.toEpochDay() : Long.MIN_VALUE;
+        String payload = PREFIX + Long.toString(forestryId, 36) + "." + Long.toString(expiration, 36)
+                + "." + Long.toString(generation, 36);
+        // Состояние обновится после фиксации транзакции (см. onForestryChanged)
+        return payload + "." + sign(payload);
+    }
+
+    // Проверка только на CPU: подпись, поколение и срок действия
+    public Verification verify(String token) {
+        String[] parts = token.split("\\.");
+        if (parts.length != 5) {
+            return Verification.rejected(TokenResolution.Status.NOT_FOUND);
+        }
+        String payload = token.substring(0, token.lastIndexOf('.'));
+        byte[] expected = Base64.getUrlDecoder().decode(sign(payload));
+        byte[] actual;
+        try {
+            actual = Base64.getUrlDecoder().decode(parts[4]);
+        } catch (IllegalArgumentException e) {
+            return Verification.rejected(TokenResolution.Status.NOT_FOUND);
+        }
+        if (!MessageDigest.isEqual(expected, actual)) {
+            log.warn("Signed token rejected: invalid signature");
+            return Verification.rejected(TokenResolution.Status.NOT_FOUND);
+        }
+
+        long forestryId = Long.parseLong(parts[1], 36);
+        long expiration = Long.parseLong(parts[2], 36);
+        long generation = Long.parseLong(parts[3], 36);
+        TokenState state = states.get(forestryId);
+        if (state == null) {
+            // Состояние неизвестно (например, лесничество только что создано): проверяем срок из токена,
+            // а актуальность токена подтвердит запрос к базе
+            if (expiration < LocalDate.now().toEpochDay()) {
+                return Verification.rejected(TokenResolution.Status.EXPIRED);
+            }
+            return new Verification(TokenResolution.Status.VALID, forestryId, false);
+        }
+        if (state.generation != generation) {
+            log.warn("Signed token rejected: revoked token for forestry ID {}", forestryId);
+            return Verification.rejected(TokenResolution.Status.NOT_FOUND);
+        }
+        if (state.expirationDate == null || state.expirationDate.isBefore(LocalDate.now())) {
+            return Verification.rejected(TokenResolution.Status.EXPIRED);
+        }
+        return new Verification(TokenResolution.Status.VALID, forestryId, true);
+    }
+
+    public void register(ForestryTokenView view) {
+        register(view.getId(), view.getToken(), view.getTokenExpirationDate());
+    }
+
+    public void register(Long forestryId, String token, LocalDate expirationDate) {
+        if (!isSigned(token)) {
+            states.remove(forestryId);
+            return;
+        }
+        String[] parts = token.split("\\.");
+        if (parts.length == 5) {
+            states.put(forestryId, new TokenState(Long.parseLong(parts[3], 36), expirationDate));
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onForestryChanged(ForestryChangedEvent event) {
+        if (mac == null) {
+            return;
+        }
+        // Перечитываем токен и срок действия по первичному ключу, удалённые лесничества забываем
+        forestryRepository.findTokenViewById(event.getForestryId())
+                .ifPresentOrElse(this::register, () -> {
+                    states.remove(event.getForestryId());
+                    issuedGenerations.remove(event.getForestryId());
+                });
+    }
+
+    private String sign(String payload) {
+        byte[] signature = mac.get().doFinal(payload.getBytes(StandardCharsets.US_ASCII));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(signature, SIGNATURE_BYTES));
+    }
+
+    private static final class TokenState {
+        private final long generation;
+        private final LocalDate expirationDate;
+
+        private TokenState(long generation, LocalDate expirationDate) {
+            this.generation = generation;
+            this.expirationDate = expirationDate;
+        }
+    }
+
+    public static final class Verification {
+        private final TokenResolution.Status status;
+        private final Long forestryId;
+        private final boolean current;
+
+        private Verification(TokenResolution.Status status, Long forestryId, boolean current) {
+            this.status = status;
+            this.forestryId = forestryId;
+            this.current = current;
+        }
+
+        private static Verification rejected(TokenResolution.Status status) {
+            return new Verification(status, null, false);
+        }
+
+        public TokenResolution.Status getStatus() {
+            return status;
+        }
+
+        public Long getForestryId() {
+            return forestryId;
+        }
+
+        // true - токен сверен с известным поколением, его можно загружать по первичному ключу
+        public boolean isCurrent() {
+            return current;
+        }
+    }
+}
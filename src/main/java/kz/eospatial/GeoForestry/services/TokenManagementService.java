@@ -2,12 +2,14 @@ package kz.eospatial.GeoForestry.services;
 
 import jakarta.persistence.EntityNotFoundException;
 import kz.eospatial.GeoForestry.dto.ForestryDto;
+import kz.eospatial.GeoForestry.events.ForestryChangedEvent;
 import kz.eospatial.GeoForestry.mappers.ForestryMapper;
 import kz.eospatial.GeoForestry.models.Forestry;
 import kz.eospatial.GeoForestry.repo.ForestryRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -22,21 +24,27 @@ public class TokenManagementService {
     private final ForestryRepository forestryRepository;
     private final TokenService tokenService;
     private final ForestryMapper forestryMapper;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Autowired
-    public TokenManagementService(ForestryRepository forestryRepository, TokenService tokenService, ForestryMapper forestryMapper) {
+    public TokenManagementService(ForestryRepository forestryRepository, TokenService tokenService, ForestryMapper forestryMapper,
+                                  ApplicationEventPublisher eventPublisher) {
         this.forestryRepository = forestryRepository;
         this.tokenService = tokenService;
         this.forestryMapper = forestryMapper; // Внедряем ForestryMapper через Spring
+        this.eventPublisher = eventPublisher;
     }
 
     public String regenerateTokenForForestry(Long id, LocalDate newExpirationDate) {
         Forestry forestry = forestryRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Forestry not found with ID: " + id));
-        String newToken = tokenService.generateToken();
+        String oldToken = forestry.getToken();
+        String newToken = tokenService.generateToken(id, newExpirationDate);
         forestry.setToken(newToken);
         forestry.setTokenExpirationDate(newExpirationDate);
         forestryRepository.save(forestry);
+        // Старый токен больше не должен обслуживаться из кэша
+        eventPublisher.publishEvent(new ForestryChangedEvent(id, oldToken));
         log.info("Regenerated token with new expiration date for forestry with ID: {}", id);
         return newToken;
     }
@@ -45,7 +53,9 @@ public class TokenManagementService {
         Forestry forestry = forestryRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Forestry not found with ID: " + id));
         forestry.setTokenExpirationDate(newExpirationDate);
-        Forestry updatedForestry = forestryRepository.save(forestry);
+        // flush, чтобы в DTO попала уже увеличенная версия
+        Forestry updatedForestry = forestryRepository.saveAndFlush(forestry);
+        eventPublisher.publishEvent(new ForestryChangedEvent(id, updatedForestry.getToken()));
         log.info("Updated token expiration date for forestry with ID: {}", id);
         return forestryMapper.toDto(updatedForestry); // Используем автоматически внедрённый маппер
     }
@@ -1,45 +1,96 @@
 package kz.eospatial.GeoForestry.services;
 
+import kz.eospatial.GeoForestry.cache.ForestryTokenCache;
+import kz.eospatial.GeoForestry.cache.TokenBloomFilter;
+import kz.eospatial.GeoForestry.models.TokenResolution;
 import kz.eospatial.GeoForestry.models.TokenValidationResult;
-import kz.eospatial.GeoForestry.repo.ForestryRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
+import java.util.Optional;
 import java.util.UUID;
 
 @Service
 public class TokenService {
 
     private static final Logger log = LoggerFactory.getLogger(TokenService.class);
-    private final ForestryRepository forestryRepository;
+    private final ForestryTokenCache forestryTokenCache;
+    private final TokenBloomFilter tokenBloomFilter;
+    private final SignedTokenService signedTokenService;
 
-    public TokenService(ForestryRepository forestryRepository) {
-        this.forestryRepository = forestryRepository;
+    public TokenService(ForestryTokenCache forestryTokenCache, TokenBloomFilter tokenBloomFilter,
+                        SignedTokenService signedTokenService) {
+        this.forestryTokenCache = forestryTokenCache;
+        this.tokenBloomFilter = tokenBloomFilter;
+        this.signedTokenService = signedTokenService;
     }
 
-    public String generateToken() {
-        String token = UUID.randomUUID().toString();
+    public String generateToken(Long forestryId, LocalDate expirationDate) {
+        String token = signedTokenService.isEnabled()
+                ? signedTokenService.issue(forestryId, expirationDate)
+                : UUID.randomUUID().toString();
+        tokenBloomFilter.add(token);
         log.info("Generated new token: {}", token);
         return token;
     }
 
     public TokenValidationResult validateToken(String token) {
-        return forestryRepository.findByToken(token)
-                .map(forestry -> {
-                    if (forestry.getTokenExpirationDate() != null &&
-                            !forestry.getTokenExpirationDate().isBefore(LocalDate.now())) {
+        return resolveToken(token).toValidationResult();
+    }
+
+    // Проверка токена и получение лесничества за одно обращение
+    public TokenResolution resolveToken(String token) {
+        if (signedTokenService.isSigned(token)) {
+            return resolveSignedToken(token);
+        }
+        // Заведомо несуществующие токены отклоняются без обращения к базе
+        if (!tokenBloomFilter.mightContain(token)) {
+            log.warn("Token validation for {}: rejected by token filter", token);
+            return TokenResolution.notFound();
+        }
+        return toResolution(token, forestryTokenCache.get(token), tokenBloomFilter::recordFalsePositive);
+    }
+
+    private TokenResolution resolveSignedToken(String token) {
+        SignedTokenService.Verification verification = signedTokenService.verify(token);
+        switch (verification.getStatus()) {
+            case EXPIRED:
+                log.warn("Token validation for {}: expired", token);
+                return TokenResolution.expired();
+            case NOT_FOUND:
+                log.warn("Token validation for {}: invalid or revoked", token);
+                return TokenResolution.notFound();
+            default:
+                break;
+        }
+        if (verification.isCurrent()) {
+            return toResolution(token, forestryTokenCache.getById(token, verification.getForestryId()), () -> { });
+        }
+        // Поколение токена ещё неизвестно: сверяем сам токен с базой и запоминаем его состояние
+        Optional<ForestryTokenCache.Entry> entry = forestryTokenCache.get(token);
+        entry.ifPresent(found -> signedTokenService.register(
+                verification.getForestryId(), token, found.getTokenExpirationDate()));
+        return toResolution(token, entry, () -> { });
+    }
+
+    private TokenResolution toResolution(String token, Optional<ForestryTokenCache.Entry> entry, Runnable onNotFound) {
+        return entry
+                .map(found -> {
+                    if (found.getTokenExpirationDate() != null &&
+                            !found.getTokenExpirationDate().isBefore(LocalDate.now())) {
                         log.info("Token validation for {}: valid", token);
-                        return TokenValidationResult.valid();
+                        return TokenResolution.valid(found.getForestry());
                     } else {
                         log.warn("Token validation for {}: expired", token);
-                        return TokenValidationResult.expired();
+                        return TokenResolution.expired();
                     }
                 })
                 .orElseGet(() -> {
+                    onNotFound.run();
                     log.warn("Token validation for {}: not found", token);
-                    return TokenValidationResult.notFound();
+                    return TokenResolution.notFound();
                 });
     }
 }
\ No newline at end of file
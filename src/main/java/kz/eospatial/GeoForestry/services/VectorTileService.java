@@ -0,0 +1,126 @@
+package kz.eospatial.GeoForestry.services;
+
+import kz.eospatial.GeoForestry.cache.VectorTileCache;
+import kz.eospatial.GeoForestry.utils.MvtEncoder;
+import kz.eospatial.GeoForestry.utils.TileUtils;
+import kz.eospatial.GeoForestry.utils.TileUtils.Tile;
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.CoordinateSequenceFilter;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.MultiPolygon;
+import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.operation.overlayng.OverlayNG;
+import org.locationtech.jts.operation.overlayng.OverlayNGRobust;
+import org.locationtech.jts.simplify.TopologyPreservingSimplifier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// Отрисовка векторных тайлов (MVT) по геометриям лесничеств
+@Service
+public class VectorTileService {
+
+    private static final Logger log = LoggerFactory.getLogger(VectorTileService.class);
+
+    public static final String LAYER_NAME = "forestries";
+    public static final int EXTENT = 4096;
+    // Буфер вокруг тайла, чтобы контуры не обрывались на его границе
+    public static final double BUFFER_RATIO = 64.0 / EXTENT;
+    // Упрощение в единицах тайла: меньше одной единицы клиент всё равно не различит
+    private static final double SIMPLIFY_TOLERANCE = 1.0;
+
+    private static final GeometryFactory GEOMETRY_FACTORY = new GeometryFactory();
+
+    private final GeometryPyramidService geometryPyramidService;
+    private final VectorTileCache vectorTileCache;
+
+    public VectorTileService(GeometryPyramidService geometryPyramidService, VectorTileCache vectorTileCache) {
+        this.geometryPyramidService = geometryPyramidService;
+        this.vectorTileCache = vectorTileCache;
+    }
+
+    // Пустой массив означает тайл без объектов
+    public byte[] getTile(int z, int x, int y) {
+        Tile tile = new Tile(z, x, y);
+        byte[] cached = vectorTileCache.get(tile);
+        if (cached != null) {
+            return cached;
+        }
+        long generation = vectorTileCache.generation();
+        byte[] rendered = render(tile);
+        vectorTileCache.put(tile, rendered, generation);
+        return rendered;
+    }
+
+    private byte[] render(Tile tile) {
+        Envelope clipEnvelope = TileUtils.tileEnvelope(tile, BUFFER_RATIO);
+        Geometry clip = GEOMETRY_FACTORY.toGeometry(clipEnvelope);
+        // На мелких зумах берём заранее упрощённые уровни, а не исходные геометрии
+        int level = geometryPyramidService.levelForZoom(tile.getZ());
+
+        MvtEncoder encoder = new MvtEncoder(LAYER_NAME, EXTENT);
+        for (Map.Entry<Long, MultiPolygon> entry : geometryPyramidService.findIntersecting(level, clipEnvelope).entrySet()) {
+            Geometry clipped = clip(entry.getValue(), clip, clipEnvelope);
+            if (clipped.isEmpty()) {
+                continue;
+            }
+            Geometry projected = clipped.copy();
+            projected.apply(new TileProjection(tile));
+            projected.geometryChanged();
+            Geometry simplified = TopologyPreservingSimplifier.simplify(projected, SIMPLIFY_TOLERANCE);
+            encoder.addPolygons(entry.getKey(), polygons(simplified));
+        }
+        log.debug("Rendered tile {} at level {}", tile, level);
+        return encoder.isEmpty() ? new byte[0] : encoder.encode();
+    }
+
+    private static Geometry clip(MultiPolygon geometry, Geometry clip, Envelope clipEnvelope) {
+        if (clipEnvelope.contains(geometry.getEnvelopeInternal())) {
+            return geometry;
+        }
+        return OverlayNGRobust.overlay(geometry, clip, OverlayNG.INTERSECTION);
+    }
+
+    private static List<Polygon> polygons(Geometry geometry) {
+        List<Polygon> polygons = new ArrayList<>(geometry.getNumGeometries());
+        for (int i = 0; i < geometry.getNumGeometries(); i++) {
+            if (geometry.getGeometryN(i) instanceof Polygon polygon && !polygon.isEmpty()) {
+                polygons.add(polygon);
+            }
+        }
+        return polygons;
+    }
+
+    // Перевод lon/lat в координаты тайла: 0..EXTENT, ось Y вниз
+    private static final class TileProjection implements CoordinateSequenceFilter {
+        private final Tile tile;
+
+        private TileProjection(Tile tile) {
+            this.tile = tile;
+        }
+
+        @Override
+        public void filter(CoordinateSequence sequence, int i) {
+            double lon = sequence.getX(i);
+            double lat = sequence.getY(i);
+            sequence.setOrdinate(i, CoordinateSequence.X, (TileUtils.lonToTileX(lon, tile.getZ()) - tile.getX()) * EXTENT);
+            sequence.setOrdinate(i, CoordinateSequence.Y, (TileUtils.latToTileY(lat, tile.getZ()) - tile.getY()) * EXTENT);
+        }
+
+        @Override
+        public boolean isDone() {
+            return false;
+        }
+
+        @Override
+        public boolean isGeometryChanged() {
+            return true;
+        }
+    }
+}
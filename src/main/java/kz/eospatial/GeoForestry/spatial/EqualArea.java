@@ -0,0 +1,48 @@
+package kz.eospatial.GeoForestry.spatial;
+
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.Polygon;
+
+// Площадь геометрии в градусах lon/lat, пересчитанная в квадратные метры
+// через равновеликую цилиндрическую проекцию Ламберта на сфере (x = R·λ, y = R·sin φ)
+public class EqualArea {
+
+    // Средний радиус Земли, м
+    public static final double EARTH_RADIUS = 6_371_008.8;
+    public static final double SQUARE_METERS_PER_HECTARE = 10_000.0;
+
+    public static double squareMeters(Geometry geometry) {
+        double area = 0;
+        for (int i = 0; i < geometry.getNumGeometries(); i++) {
+            if (geometry.getGeometryN(i) instanceof Polygon polygon) {
+                area += ringArea(polygon.getExteriorRing());
+                for (int j = 0; j < polygon.getNumInteriorRing(); j++) {
+                    area -= ringArea(polygon.getInteriorRingN(j));
+                }
+            }
+        }
+        return area;
+    }
+
+    // Формула площади Гаусса прямо по спроецированным координатам, без копирования геометрии
+    private static double ringArea(LineString ring) {
+        CoordinateSequence sequence = ring.getCoordinateSequence();
+        int size = sequence.size();
+        if (size < 4) {
+            return 0;
+        }
+        double sum = 0;
+        double previousX = Math.toRadians(sequence.getX(0));
+        double previousY = Math.sin(Math.toRadians(sequence.getY(0)));
+        for (int i = 1; i < size; i++) {
+            double x = Math.toRadians(sequence.getX(i));
+            double y = Math.sin(Math.toRadians(sequence.getY(i)));
+            sum += previousX * y - x * previousY;
+            previousX = x;
+            previousY = y;
+        }
+        return Math.abs(sum) / 2 * EARTH_RADIUS * EARTH_RADIUS;
+    }
+}
@@ -0,0 +1,446 @@
+package kz.eospatial.GeoForestry.spatial;
+
+import kz.eospatial.GeoForestry.events.ForestryGeometryChangedEvent;
+import kz.eospatial.GeoForestry.models.ForestryGeometries;
+import kz.eospatial.GeoForestry.repo.ForestryGeometriesRepository;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.MultiPolygon;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
+import org.locationtech.jts.index.strtree.ItemBoundable;
+import org.locationtech.jts.index.strtree.ItemDistance;
+import org.locationtech.jts.index.strtree.STRtree;
+import org.locationtech.jts.operation.distance.IndexedFacetDistance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Пространственный индекс всех геометрий лесничеств в памяти.
+// STRtree после построения неизменяем, поэтому изменения копятся в небольшом оверлее,
+// а при его разрастании дерево перестраивается из уже подготовленных геометрий.
+// Читатели работают с неизменяемым снимком без блокировок.
+@Component
+public class ForestrySpatialIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(ForestrySpatialIndex.class);
+    private static final GeometryFactory GEOMETRY_FACTORY = new GeometryFactory();
+
+    private final ForestryGeometriesRepository forestryGeometriesRepository;
+    private final int rebuildThreshold;
+
+    private final Object lock = new Object();
+    // Все актуальные геометрии; изменяется только под lock, читается без блокировок (в том числе GridCellIndex)
+    private final Map<Long, IndexedForestry> entries = new ConcurrentHashMap<>();
+    private volatile Snapshot snapshot = Snapshot.empty();
+
+    private final LatencyStats lookupLatency = new LatencyStats();
+    private final LatencyStats nearestLatency = new LatencyStats();
+    private final LongAdder rebuilds = new LongAdder();
+
+    public ForestrySpatialIndex(ForestryGeometriesRepository forestryGeometriesRepository,
+                                @Value("${forestry.spatial-index.rebuild-threshold:64}") int rebuildThreshold) {
+        this.forestryGeometriesRepository = forestryGeometriesRepository;
+        this.rebuildThreshold = rebuildThreshold;
+    }
+
+    // Изменения, пришедшие во время загрузки, ждут lock и применяются уже к новому дереву.
+    // Порядок 0: GridCellIndex строится после из уже подготовленных здесь геометрий
+    @Order(0)
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        synchronized (lock) {
+            try {
+                long started = System.nanoTime();
+                entries.clear();
+                for (ForestryGeometries geometry : forestryGeometriesRepository.findAll()) {
+                    if (geometry.getGeom() != null) {
+                        entries.put(geometry.getForestryId(), new IndexedForestry(geometry.getForestryId(), geometry.getGeom()));
+                    }
+                }
+                rebuild();
+                log.info("Spatial index built with {} forestries in {} ms",
+                        entries.size(), (System.nanoTime() - started) / 1_000_000);
+            } catch (RuntimeException e) {
+                log.error("Failed to build spatial index", e);
+            }
+        }
+    }
+
+    @Order(0)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onGeometryChanged(ForestryGeometryChangedEvent event) {
+        if (event.getCurrentGeometry() != null) {
+            put(event.getForestryId(), event.getCurrentGeometry());
+        } else {
+            remove(event.getForestryId());
+        }
+    }
+
+    public void put(Long forestryId, MultiPolygon geometry) {
+        IndexedForestry indexed = new IndexedForestry(forestryId, geometry);
+        synchronized (lock) {
+            entries.put(forestryId, indexed);
+            Snapshot current = snapshot;
+            Map<Long, IndexedForestry> overlay = new HashMap<>(current.overlay);
+            overlay.put(forestryId, indexed);
+            Set<Long> removed = new HashSet<>(current.removed);
+            removed.add(forestryId);
+            publish(new Snapshot(current.tree, current.treeSize, entries.size(), overlay, removed));
+        }
+    }
+
+    public void remove(Long forestryId) {
+        synchronized (lock) {
+            if (entries.remove(forestryId) == null) {
+                return;
+            }
+            Snapshot current = snapshot;
+            Map<Long, IndexedForestry> overlay = new HashMap<>(current.overlay);
+            overlay.remove(forestryId);
+            Set<Long> removed = new HashSet<>(current.removed);
+            removed.add(forestryId);
+            publish(new Snapshot(current.tree, current.treeSize, entries.size(), overlay, removed));
+        }
+    }
+
+    // ID лесничеств, содержащих точку (лесничества могут перекрываться)
+    public List<Long> findContaining(double lon, double lat) {
+        long started = System.nanoTime();
+        Snapshot current = snapshot;
+        Point point = GEOMETRY_FACTORY.createPoint(new Coordinate(lon, lat));
+        List<Long> result = new ArrayList<>(1);
+        @SuppressWarnings("unchecked")
+        List<IndexedForestry> candidates = current.tree.query(new Envelope(lon, lon, lat, lat));
+        for (IndexedForestry candidate : candidates) {
+            if (!current.removed.contains(candidate.forestryId) && candidate.geometry.contains(point)) {
+                result.add(candidate.forestryId);
+            }
+        }
+        for (IndexedForestry candidate : current.overlay.values()) {
+            if (candidate.contains(lon, lat, point)) {
+                result.add(candidate.forestryId);
+            }
+        }
+        lookupLatency.record(System.nanoTime() - started);
+        return result;
+    }
+
+    // Лесничество для каждой точки участка [fromPoint, toPoint) массива lon,lat; -1 — точка вне лесничеств.
+    // Соседние точки трека обычно лежат в одном лесничестве, поэтому сначала проверяется предыдущее попадание.
+    public long[] classify(double[] lonLat, int fromPoint, int toPoint) {
+        Snapshot current = snapshot;
+        long[] result = new long[toPoint - fromPoint];
+        IndexedForestry previous = null;
+        for (int i = fromPoint; i < toPoint; i++) {
+            double lon = lonLat[2 * i];
+            double lat = lonLat[2 * i + 1];
+            Point point = GEOMETRY_FACTORY.createPoint(new Coordinate(lon, lat));
+            IndexedForestry match = previous != null && previous.contains(lon, lat, point)
+                    ? previous
+                    : firstContaining(current, lon, lat, point);
+            result[i - fromPoint] = match != null ? match.forestryId : -1L;
+            if (match != null) {
+                previous = match;
+            }
+        }
+        return result;
+    }
+
+    private static IndexedForestry firstContaining(Snapshot current, double lon, double lat, Point point) {
+        @SuppressWarnings("unchecked")
+        List<IndexedForestry> candidates = current.tree.query(new Envelope(lon, lon, lat, lat));
+        for (IndexedForestry candidate : candidates) {
+            if (!current.removed.contains(candidate.forestryId) && candidate.geometry.contains(point)) {
+                return candidate;
+            }
+        }
+        for (IndexedForestry candidate : current.overlay.values()) {
+            if (candidate.contains(lon, lat, point)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    // Подготовленная геометрия лесничества по ID; null, если геометрии нет
+    public Candidate get(Long forestryId) {
+        return entries.get(forestryId);
+    }
+
+    public List<Candidate> all() {
+        synchronized (lock) {
+            return new ArrayList<>(entries.values());
+        }
+    }
+
+    // Лесничества, охват которых пересекает envelope; точная проверка остаётся вызывающему
+    public List<Candidate> findCandidates(Envelope envelope) {
+        Snapshot current = snapshot;
+        List<Candidate> result = new ArrayList<>();
+        @SuppressWarnings("unchecked")
+        List<IndexedForestry> candidates = current.tree.query(envelope);
+        for (IndexedForestry candidate : candidates) {
+            if (!current.removed.contains(candidate.forestryId)) {
+                result.add(candidate);
+            }
+        }
+        for (IndexedForestry candidate : current.overlay.values()) {
+            if (candidate.envelope.intersects(envelope)) {
+                result.add(candidate);
+            }
+        }
+        return result;
+    }
+
+    // k ближайших лесничеств с расстоянием в метрах (0 — точка внутри).
+    // Дерево ранжирует по расстоянию в градусах, которое искажено по долготе, поэтому:
+    // 1) берём k ближайших по дереву и считаем для них расстояние в метрах;
+    // 2) добираем из дерева всех, чей охват ближе k-го найденного расстояния, и пересчитываем.
+    // Так ответ точен без перебора всех геометрий. Цель: p99 < 5 мс при нескольких тысячах лесничеств.
+    public List<Neighbour> nearest(double lon, double lat, int k) {
+        long started = System.nanoTime();
+        Snapshot current = snapshot;
+        Point point = GEOMETRY_FACTORY.createPoint(new Coordinate(lon, lat));
+        Map<Long, Neighbour> found = new HashMap<>();
+
+        if (current.treeSize > 0) {
+            // Удалённые записи всё ещё в дереве: запрашиваем с запасом
+            int treeK = Math.min(current.treeSize, k + current.removed.size());
+            Object[] items = current.tree.nearestNeighbour(point.getEnvelopeInternal(), point, new PointDistance(), treeK);
+            for (Object item : items) {
+                addNeighbour((IndexedForestry) item, current, point, found);
+            }
+        }
+        current.overlay.values().forEach(candidate -> addNeighbour(candidate, current, point, found));
+
+        List<Neighbour> ranked = rank(found, k);
+        if (ranked.size() == k && current.treeSize > 0) {
+            double radius = ranked.get(k - 1).getDistanceMeters();
+            for (Object item : current.tree.query(searchEnvelope(lon, lat, radius))) {
+                IndexedForestry candidate = (IndexedForestry) item;
+                // Нижняя оценка по охвату отсекает большинство кандидатов без расчёта расстояния до контура
+                if (envelopeDistanceMeters(candidate.envelope, lon, lat) <= radius) {
+                    addNeighbour(candidate, current, point, found);
+                }
+            }
+            ranked = rank(found, k);
+        }
+        nearestLatency.record(System.nanoTime() - started);
+        return ranked;
+    }
+
+    private static void addNeighbour(IndexedForestry candidate, Snapshot current, Point point, Map<Long, Neighbour> found) {
+        if (found.containsKey(candidate.forestryId)
+                || (current.removed.contains(candidate.forestryId) && current.overlay.get(candidate.forestryId) != candidate)) {
+            return;
+        }
+        double distance = 0;
+        if (!candidate.geometry.contains(point)) {
+            Coordinate[] nearest = candidate.facetDistance().nearestPoints(point);
+            distance = haversineMeters(nearest[0], nearest[1]);
+        }
+        found.put(candidate.forestryId, new Neighbour(candidate.forestryId, distance));
+    }
+
+    private static List<Neighbour> rank(Map<Long, Neighbour> found, int k) {
+        return found.values().stream()
+                .sorted(Comparator.comparingDouble(Neighbour::getDistanceMeters))
+                .limit(k)
+                .toList();
+    }
+
+    // Прямоугольник в градусах, гарантированно содержащий всё в пределах radius метров от точки
+    private static Envelope searchEnvelope(double lon, double lat, double radius) {
+        double dLat = Math.toDegrees(radius / EqualArea.EARTH_RADIUS);
+        double maxLat = Math.min(90, Math.abs(lat) + dLat);
+        double cos = Math.cos(Math.toRadians(maxLat));
+        double dLon = cos < 1e-9 ? 180 : Math.min(180, Math.toDegrees(radius / (EqualArea.EARTH_RADIUS * cos)));
+        return new Envelope(lon - dLon, lon + dLon, lat - dLat, lat + dLat);
+    }
+
+    // Расстояние до ближайшей точки охвата; по долготе берётся широта с наименьшим косинусом,
+    // поэтому оценка не превышает истинного расстояния до геометрии
+    private static double envelopeDistanceMeters(Envelope envelope, double lon, double lat) {
+        double dLat = Math.max(0, Math.max(envelope.getMinY() - lat, lat - envelope.getMaxY()));
+        double dLon = Math.max(0, Math.max(envelope.getMinX() - lon, lon - envelope.getMaxX()));
+        double maxAbsLat = Math.max(Math.abs(lat), Math.max(Math.abs(envelope.getMinY()), Math.abs(envelope.getMaxY())));
+        double lonMeters = Math.toRadians(dLon) * EqualArea.EARTH_RADIUS * Math.cos(Math.toRadians(Math.min(90, maxAbsLat)));
+        double latMeters = Math.toRadians(dLat) * EqualArea.EARTH_RADIUS;
+        return Math.max(lonMeters, latMeters);
+    }
+
+    private static double haversineMeters(Coordinate a, Coordinate b) {
+        double lat1 = Math.toRadians(a.getY());
+        double lat2 = Math.toRadians(b.getY());
+        double dLat = lat2 - lat1;
+        double dLon = Math.toRadians(b.getX() - a.getX());
+        double h = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(lat1) * Math.cos(lat2) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EqualArea.EARTH_RADIUS * Math.asin(Math.min(1, Math.sqrt(h)));
+    }
+
+    public Map<String, Object> stats() {
+        Snapshot current = snapshot;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", current.size);
+        stats.put("treeSize", current.treeSize);
+        stats.put("overlaySize", current.overlay.size());
+        stats.put("removedSize", current.removed.size());
+        stats.put("rebuilds", rebuilds.sum());
+        stats.put("lookupLatency", lookupLatency.stats());
+        stats.put("nearestLatency", nearestLatency.stats());
+        return stats;
+    }
+
+    private void publish(Snapshot next) {
+        if (next.overlay.size() + next.removed.size() > rebuildThreshold) {
+            rebuild();
+        } else {
+            snapshot = next;
+        }
+    }
+
+    // Вызывается под lock: новое дерево из всех актуальных геометрий
+    private void rebuild() {
+        STRtree tree = new STRtree();
+        for (IndexedForestry indexed : entries.values()) {
+            tree.insert(indexed.envelope, indexed);
+        }
+        // Дерево строится до публикации: ленивое построение в query() не потокобезопасно
+        tree.build();
+        snapshot = new Snapshot(tree, entries.size(), entries.size(), Collections.emptyMap(), Collections.emptySet());
+        rebuilds.increment();
+    }
+
+    public static final class Neighbour {
+        private final Long forestryId;
+        private final double distanceMeters;
+
+        private Neighbour(Long forestryId, double distanceMeters) {
+            this.forestryId = forestryId;
+            this.distanceMeters = distanceMeters;
+        }
+
+        public Long getForestryId() {
+            return forestryId;
+        }
+
+        public double getDistanceMeters() {
+            return distanceMeters;
+        }
+    }
+
+    // Расстояние (в градусах) от точки запроса до геометрии лесничества
+    private static final class PointDistance implements ItemDistance {
+        @Override
+        public double distance(ItemBoundable item1, ItemBoundable item2) {
+            Object first = item1.getItem();
+            Object second = item2.getItem();
+            if (first instanceof IndexedForestry forestry && second instanceof Point point) {
+                return forestry.facetDistance().distance(point);
+            }
+            if (second instanceof IndexedForestry forestry && first instanceof Point point) {
+                return forestry.facetDistance().distance(point);
+            }
+            return ((IndexedForestry) first).envelope.distance(((IndexedForestry) second).envelope);
+        }
+    }
+
+    // Лесничество-кандидат для точных пространственных операций
+    public interface Candidate {
+        Long getForestryId();
+
+        PreparedGeometry getGeometry();
+
+        // Площадь лесничества в квадратных метрах, считается один раз при индексации
+        double getAreaSquareMeters();
+    }
+
+    private static final class IndexedForestry implements Candidate {
+        private final Long forestryId;
+        private final Envelope envelope;
+        private final PreparedGeometry geometry;
+        private final double areaSquareMeters;
+        private volatile IndexedFacetDistance facetDistance;
+
+        private IndexedForestry(Long forestryId, MultiPolygon geometry) {
+            this.forestryId = forestryId;
+            this.envelope = geometry.getEnvelopeInternal();
+            this.geometry = PreparedGeometryFactory.prepare(geometry);
+            this.areaSquareMeters = EqualArea.squareMeters(geometry);
+        }
+
+        // Индекс рёбер для быстрых расстояний строится при первом поиске ближайших
+        private IndexedFacetDistance facetDistance() {
+            IndexedFacetDistance distance = facetDistance;
+            if (distance == null) {
+                distance = new IndexedFacetDistance(geometry.getGeometry());
+                facetDistance = distance;
+            }
+            return distance;
+        }
+
+        @Override
+        public Long getForestryId() {
+            return forestryId;
+        }
+
+        @Override
+        public PreparedGeometry getGeometry() {
+            return geometry;
+        }
+
+        @Override
+        public double getAreaSquareMeters() {
+            return areaSquareMeters;
+        }
+
+        private boolean contains(double lon, double lat, Point point) {
+            return envelope.contains(lon, lat) && geometry.contains(point);
+        }
+    }
+
+    private static final class Snapshot {
+        private final STRtree tree;
+        private final int treeSize;
+        private final int size;
+        // Добавленные или заменённые после построения дерева
+        private final Map<Long, IndexedForestry> overlay;
+        // ID, записи которых в дереве удалены или устарели
+        private final Set<Long> removed;
+
+        private Snapshot(STRtree tree, int treeSize, int size, Map<Long, IndexedForestry> overlay, Set<Long> removed) {
+            this.tree = tree;
+            this.treeSize = treeSize;
+            this.size = size;
+            this.overlay = overlay;
+            this.removed = removed;
+        }
+
+        private static Snapshot empty() {
+            STRtree tree = new STRtree();
+            tree.build();
+            return new Snapshot(tree, 0, 0, Collections.emptyMap(), Collections.emptySet());
+        }
+    }
+}
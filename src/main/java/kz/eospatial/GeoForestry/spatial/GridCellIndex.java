@@ -0,0 +1,281 @@
+package kz.eospatial.GeoForestry.spatial;
+
+import kz.eospatial.GeoForestry.events.ForestryGeometryChangedEvent;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Покрытие геометрий лесничеств ячейками регулярной сетки lon/lat одного уровня.
+// Ячейка либо целиком внутри лесничества, либо на его границе; поиск точки — одна проба хеш-таблицы,
+// точная проверка полигона нужна только для граничных ячеек; подготовленные геометрии берутся из ForestrySpatialIndex.
+@Component
+public class GridCellIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(GridCellIndex.class);
+    private static final GeometryFactory GEOMETRY_FACTORY = new GeometryFactory();
+    // Младший бит записи ячейки: 1 — ячейка целиком внутри, 0 — граничная
+    private static final long INSIDE_FLAG = 1L;
+
+    private final ForestrySpatialIndex forestrySpatialIndex;
+    private final int level;
+    private final int cellsPerAxis;
+
+    // Обновления выполняются по одному; чтение блокируется только на время замены ячеек
+    private final Object updateLock = new Object();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // Ключ ячейки -> записи (forestryId << 1 | INSIDE_FLAG)
+    private final LongObjectHashMap<long[]> cells = new LongObjectHashMap<>(1 << 16);
+    // Для инкрементального обновления: ячейки каждого лесничества
+    private final Map<Long, long[]> coverByForestry = new HashMap<>();
+
+    private final LatencyStats lookupLatency = new LatencyStats();
+    private final LongAdder exactTests = new LongAdder();
+
+    public GridCellIndex(ForestrySpatialIndex forestrySpatialIndex,
+                         @Value("${forestry.grid-index.level:14}") int level) {
+        if (level < 1 || level > 30) {
+            throw new IllegalArgumentException("Grid level must be between 1 and 30");
+        }
+        this.forestrySpatialIndex = forestrySpatialIndex;
+        this.level = level;
+        this.cellsPerAxis = 1 << level;
+    }
+
+    // После ForestrySpatialIndex (порядок 0): покрытие строится из его геометрий без повторного чтения из базы
+    @Order(1)
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        long started = System.nanoTime();
+        synchronized (updateLock) {
+            loadAll(started);
+        }
+    }
+
+    private void loadAll(long started) {
+        try {
+            List<ForestrySpatialIndex.Candidate> all = forestrySpatialIndex.all();
+            for (ForestrySpatialIndex.Candidate candidate : all) {
+                apply(candidate);
+            }
+            log.info("Grid cell index built for {} forestries ({} cells, level {}) in {} ms",
+                    all.size(), cellCount(), level, (System.nanoTime() - started) / 1_000_000);
+        } catch (RuntimeException e) {
+            log.error("Failed to build grid cell index", e);
+        }
+    }
+
+    // Пространственный индекс к этому моменту уже обработал событие (порядок 0)
+    @Order(1)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onGeometryChanged(ForestryGeometryChangedEvent event) {
+        ForestrySpatialIndex.Candidate candidate = forestrySpatialIndex.get(event.getForestryId());
+        if (candidate != null) {
+            put(candidate);
+        } else {
+            remove(event.getForestryId());
+        }
+    }
+
+    // Покрытие считается до блокировки чтения, под записью только замена ячеек
+    public void put(ForestrySpatialIndex.Candidate candidate) {
+        synchronized (updateLock) {
+            apply(candidate);
+        }
+    }
+
+    private void apply(ForestrySpatialIndex.Candidate candidate) {
+        Long forestryId = candidate.getForestryId();
+        PreparedGeometry prepared = candidate.getGeometry();
+        List<Long> entries = new ArrayList<>();
+        cover(prepared, prepared.getGeometry().getEnvelopeInternal(), 0, 0, 0, entries);
+        long[] cover = new long[entries.size()];
+        for (int i = 0; i < cover.length; i++) {
+            cover[i] = entries.get(i);
+        }
+
+        lock.writeLock().lock();
+        try {
+            removeCells(forestryId);
+            for (long entry : cover) {
+                addEntry(entry >>> 1, (forestryId << 1) | (entry & INSIDE_FLAG));
+            }
+            coverByForestry.put(forestryId, cover);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long forestryId) {
+        synchronized (updateLock) {
+            lock.writeLock().lock();
+            try {
+                removeCells(forestryId);
+                coverByForestry.remove(forestryId);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    public List<Long> findContaining(double lon, double lat) {
+        long started = System.nanoTime();
+        List<Long> result = new ArrayList<>(1);
+        Point point = null;
+        lock.readLock().lock();
+        try {
+            long[] entries = cells.get(cellKey(cellX(lon), cellY(lat)));
+            if (entries != null) {
+                for (long entry : entries) {
+                    long forestryId = entry >>> 1;
+                    if ((entry & INSIDE_FLAG) != 0) {
+                        result.add(forestryId);
+                        continue;
+                    }
+                    if (point == null) {
+                        point = GEOMETRY_FACTORY.createPoint(new Coordinate(lon, lat));
+                    }
+                    exactTests.increment();
+                    // Геометрия могла быть удалена из пространственного индекса раньше, чем отсюда
+                    ForestrySpatialIndex.Candidate candidate = forestrySpatialIndex.get(forestryId);
+                    if (candidate != null && candidate.getGeometry().contains(point)) {
+                        result.add(forestryId);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        lookupLatency.record(System.nanoTime() - started);
+        return result;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        lock.readLock().lock();
+        try {
+            stats.put("level", level);
+            stats.put("forestries", coverByForestry.size());
+            stats.put("cells", cells.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+        stats.put("exactTests", exactTests.sum());
+        stats.put("lookupLatency", lookupLatency.stats());
+        return stats;
+    }
+
+    // Рекурсивный спуск от ячейки уровня depth: пустые ветви отсекаются по охвату,
+    // ячейки целиком внутри раскрываются до целевого уровня без дальнейших проверок
+    private void cover(PreparedGeometry geometry, Envelope envelope, int depth, int x, int y, List<Long> out) {
+        Envelope cell = cellEnvelope(depth, x, y);
+        if (!cell.intersects(envelope)) {
+            return;
+        }
+        Geometry cellPolygon = GEOMETRY_FACTORY.toGeometry(cell);
+        if (!geometry.intersects(cellPolygon)) {
+            return;
+        }
+        int shift = level - depth;
+        if (geometry.covers(cellPolygon)) {
+            for (int dx = 0; dx < 1 << shift; dx++) {
+                for (int dy = 0; dy < 1 << shift; dy++) {
+                    out.add((cellKey((x << shift) + dx, (y << shift) + dy) << 1) | INSIDE_FLAG);
+                }
+            }
+            return;
+        }
+        if (depth == level) {
+            out.add(cellKey(x, y) << 1);
+            return;
+        }
+        for (int child = 0; child < 4; child++) {
+            cover(geometry, envelope, depth + 1, (x << 1) | (child & 1), (y << 1) | (child >> 1), out);
+        }
+    }
+
+    private void removeCells(Long forestryId) {
+        long[] cover = coverByForestry.get(forestryId);
+        if (cover == null) {
+            return;
+        }
+        for (long entry : cover) {
+            long key = entry >>> 1;
+            long[] existing = cells.get(key);
+            if (existing == null) {
+                continue;
+            }
+            long[] remaining = new long[existing.length];
+            int count = 0;
+            for (long value : existing) {
+                if (value >>> 1 != forestryId) {
+                    remaining[count++] = value;
+                }
+            }
+            if (count == 0) {
+                cells.remove(key);
+            } else {
+                cells.put(key, Arrays.copyOf(remaining, count));
+            }
+        }
+    }
+
+    private void addEntry(long key, long value) {
+        long[] existing = cells.get(key);
+        if (existing == null) {
+            cells.put(key, new long[]{value});
+            return;
+        }
+        long[] extended = Arrays.copyOf(existing, existing.length + 1);
+        extended[existing.length] = value;
+        cells.put(key, extended);
+    }
+
+    private int cellCount() {
+        lock.readLock().lock();
+        try {
+            return cells.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Envelope cellEnvelope(int depth, int x, int y) {
+        double width = 360.0 / (1 << depth);
+        double height = 180.0 / (1 << depth);
+        return new Envelope(-180.0 + x * width, -180.0 + (x + 1) * width,
+                -90.0 + y * height, -90.0 + (y + 1) * height);
+    }
+
+    private int cellX(double lon) {
+        return Math.min(cellsPerAxis - 1, Math.max(0, (int) Math.floor((lon + 180.0) / 360.0 * cellsPerAxis)));
+    }
+
+    private int cellY(double lat) {
+        return Math.min(cellsPerAxis - 1, Math.max(0, (int) Math.floor((lat + 90.0) / 180.0 * cellsPerAxis)));
+    }
+
+    private static long cellKey(int x, int y) {
+        return ((long) x << 32) | y;
+    }
+}
@@ -0,0 +1,65 @@
+package kz.eospatial.GeoForestry.spatial;
+
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.MultiPolygon;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
+import org.locationtech.jts.operation.overlayng.OverlayNG;
+import org.locationtech.jts.operation.overlayng.OverlayNGRobust;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+// Пересечение произвольного контура (пожар, вырубка) с лесничествами
+@Service
+public class IntersectionService {
+
+    private static final Logger log = LoggerFactory.getLogger(IntersectionService.class);
+
+    private final ForestrySpatialIndex forestrySpatialIndex;
+    private final LatencyStats latency = new LatencyStats();
+
+    public IntersectionService(ForestrySpatialIndex forestrySpatialIndex) {
+        this.forestrySpatialIndex = forestrySpatialIndex;
+    }
+
+    // Кандидаты отбираются по охватам в индексе, затем подготовленным контуром;
+    // дорогое наложение (overlay) считается параллельно только для действительно пересекающихся
+    public List<Map<String, Object>> intersect(MultiPolygon perimeter) {
+        long started = System.nanoTime();
+        PreparedGeometry preparedPerimeter = PreparedGeometryFactory.prepare(perimeter);
+        List<ForestrySpatialIndex.Candidate> candidates = forestrySpatialIndex.findCandidates(perimeter.getEnvelopeInternal());
+
+        List<Map<String, Object>> result = candidates.parallelStream()
+                .filter(candidate -> preparedPerimeter.intersects(candidate.getGeometry().getGeometry()))
+                .map(candidate -> overlap(candidate, perimeter))
+                .sorted(Comparator.comparingDouble(
+                        (Map<String, Object> overlap) -> (Double) overlap.get("intersectionAreaHa")).reversed())
+                .collect(Collectors.toList());
+
+        latency.record(System.nanoTime() - started);
+        log.info("Perimeter intersects {} of {} candidate forestries", result.size(), candidates.size());
+        return result;
+    }
+
+    public Map<String, Object> stats() {
+        return Map.of("latency", latency.stats());
+    }
+
+    private static Map<String, Object> overlap(ForestrySpatialIndex.Candidate candidate, Geometry perimeter) {
+        Geometry intersection = OverlayNGRobust.overlay(candidate.getGeometry().getGeometry(), perimeter, OverlayNG.INTERSECTION);
+        // При касании по границе лесничество попадает в ответ с нулевой площадью
+        double area = EqualArea.squareMeters(intersection);
+        Map<String, Object> overlap = new LinkedHashMap<>();
+        overlap.put("forestryId", candidate.getForestryId());
+        overlap.put("intersectionAreaHa", area / EqualArea.SQUARE_METERS_PER_HECTARE);
+        overlap.put("forestryShare", candidate.getAreaSquareMeters() > 0 ? area / candidate.getAreaSquareMeters() : 0.0);
+        return overlap;
+    }
+}
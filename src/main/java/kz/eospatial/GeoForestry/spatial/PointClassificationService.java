@@ -0,0 +1,45 @@
+package kz.eospatial.GeoForestry.spatial;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+// Пакетная классификация точек трека по лесничествам параллельными участками
+@Service
+public class PointClassificationService {
+
+    private final ForestrySpatialIndex forestrySpatialIndex;
+    private final int chunkSize;
+    private final LatencyStats batchLatency = new LatencyStats();
+
+    public PointClassificationService(ForestrySpatialIndex forestrySpatialIndex,
+                                      @Value("${forestry.spatial.batch-chunk-size:4096}") int chunkSize) {
+        this.forestrySpatialIndex = forestrySpatialIndex;
+        this.chunkSize = chunkSize;
+    }
+
+    // Участки считаются в общем пуле ForkJoin; результаты идут в порядке точек.
+    // Подготовленные геометрии индекса общие для всех запросов.
+    public List<CompletableFuture<long[]>> classify(double[] lonLat) {
+        int points = lonLat.length / 2;
+        List<CompletableFuture<long[]>> chunks = new ArrayList<>(points / chunkSize + 1);
+        for (int from = 0; from < points; from += chunkSize) {
+            int chunkFrom = from;
+            int chunkTo = Math.min(points, from + chunkSize);
+            chunks.add(CompletableFuture.supplyAsync(() -> forestrySpatialIndex.classify(lonLat, chunkFrom, chunkTo)));
+        }
+        return chunks;
+    }
+
+    public void recordBatch(long nanos) {
+        batchLatency.record(nanos);
+    }
+
+    public Map<String, Object> stats() {
+        return Map.of("batchLatency", batchLatency.stats());
+    }
+}
@@ -1,10 +1,12 @@
 package kz.eospatial.GeoForestry.user;
 
 import kz.eospatial.GeoForestry.enums.Role;
+import kz.eospatial.GeoForestry.events.PasswordChangedEvent;
 import kz.eospatial.GeoForestry.exeptions.UserAlreadyExistsException;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
@@ -13,6 +15,8 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.Collections;
 
 @Service
@@ -23,6 +27,7 @@ public class UserService implements UserDetailsService {
 
     private final UserRepository repository;
     private final PasswordEncoder passwordEncoder;
+    private final ApplicationEventPublisher eventPublisher;
 
     public Users save(Users user) {
         return repository.save(user);
@@ -52,7 +57,11 @@ public class UserService implements UserDetailsService {
         repository.findById(userId).ifPresent(user -> {
             String encodedPassword = passwordEncoder.encode(newPassword);
             user.setPassword(encodedPassword);
+            // Все JWT пользователя, выданные до этой секунды, перестают приниматься после фиксации транзакции
+            Instant changedAt = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+            user.setPasswordChangedAt(changedAt);
             repository.save(user);
+            eventPublisher.publishEvent(new PasswordChangedEvent(user.getUsername(), changedAt));
             logger.info("Password for user with id {} has been updated.", userId);
         });
     }
@@ -1,9 +1,12 @@
 package kz.eospatial.GeoForestry.user;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import kz.eospatial.GeoForestry.enums.Role;
 import lombok.*;
 
+import java.time.Instant;
+
 @Entity
 @Data
 @AllArgsConstructor
@@ -25,4 +28,7 @@ public class Users {
     @Enumerated(EnumType.STRING)
     private Role role;
 
+    @JsonIgnore
+    private Instant passwordChangedAt;
+
 }
@@ -0,0 +1,104 @@
+package kz.eospatial.GeoForestry.utils;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import kz.eospatial.GeoForestry.models.CoordinateArray;
+import org.locationtech.jts.geom.CoordinateSequence;
+
+import java.io.IOException;
+
+// Компактные представления последовательностей координат с точностью 10^-precision градуса.
+// Разности считаются между уже округлёнными значениями, поэтому ошибка не накапливается вдоль контура.
+// Во всех компактных форматах и на всех эндпоинтах порядок осей один - lat,lon (как в Encoded Polyline);
+// для геометрии JTS это (y, x). Порядок также указывается в ответе полем "order".
+public class CompactCoordinates {
+
+    public static final String AXIS_ORDER = "latlon";
+
+    public static final int MIN_PRECISION = 1;
+    public static final int MAX_PRECISION = 7;
+
+    private static final double[] SCALES = {1, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7};
+
+    public static void checkPrecision(int precision) {
+        if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("Coordinate precision must be between "
+                    + MIN_PRECISION + " and " + MAX_PRECISION + ", got " + precision);
+        }
+    }
+
+    public static String polyline(CoordinateArray coordinates, int precision) {
+        double scale = SCALES[precision];
+        StringBuilder out = new StringBuilder(coordinates.size() * 8);
+        long previousLat = 0;
+        long previousLon = 0;
+        for (int i = 0; i < coordinates.size(); i++) {
+            long lat = Math.round(coordinates.getLatitude(i) * scale);
+            long lon = Math.round(coordinates.getLongitude(i) * scale);
+            appendPolylineValue(out, lat - previousLat);
+            appendPolylineValue(out, lon - previousLon);
+            previousLat = lat;
+            previousLon = lon;
+        }
+        return out.toString();
+    }
+
+    public static String polyline(CoordinateSequence sequence, int precision) {
+        double scale = SCALES[precision];
+        StringBuilder out = new StringBuilder(sequence.size() * 8);
+        long previousLat = 0;
+        long previousLon = 0;
+        for (int i = 0; i < sequence.size(); i++) {
+            long lat = Math.round(sequence.getY(i) * scale);
+            long lon = Math.round(sequence.getX(i) * scale);
+            appendPolylineValue(out, lat - previousLat);
+            appendPolylineValue(out, lon - previousLon);
+            previousLat = lat;
+            previousLon = lon;
+        }
+        return out.toString();
+    }
+
+    // Плоский массив [lat0, lon0, dLat1, dLon1, ...]: первая точка абсолютная, остальные - разности
+    public static void writeQuantized(JsonGenerator generator, CoordinateArray coordinates, int precision) throws IOException {
+        double scale = SCALES[precision];
+        generator.writeStartArray(coordinates, coordinates.size() * 2);
+        long previousLat = 0;
+        long previousLon = 0;
+        for (int i = 0; i < coordinates.size(); i++) {
+            long lat = Math.round(coordinates.getLatitude(i) * scale);
+            long lon = Math.round(coordinates.getLongitude(i) * scale);
+            generator.writeNumber(lat - previousLat);
+            generator.writeNumber(lon - previousLon);
+            previousLat = lat;
+            previousLon = lon;
+        }
+        generator.writeEndArray();
+    }
+
+    // Плоский массив [lat0, lon0, dLat1, dLon1, ...], тот же порядок, что и у границ
+    public static void writeQuantized(JsonGenerator generator, CoordinateSequence sequence, int precision) throws IOException {
+        double scale = SCALES[precision];
+        generator.writeStartArray(sequence, sequence.size() * 2);
+        long previousLat = 0;
+        long previousLon = 0;
+        for (int i = 0; i < sequence.size(); i++) {
+            long lat = Math.round(sequence.getY(i) * scale);
+            long lon = Math.round(sequence.getX(i) * scale);
+            generator.writeNumber(lat - previousLat);
+            generator.writeNumber(lon - previousLon);
+            previousLat = lat;
+            previousLon = lon;
+        }
+        generator.writeEndArray();
+    }
+
+    // Алгоритм Encoded Polyline: zigzag, затем блоки по 5 бит со сдвигом на 63
+    private static void appendPolylineValue(StringBuilder out, long delta) {
+        long value = delta < 0 ? ~(delta << 1) : delta << 1;
+        while (value >= 0x20) {
+            out.append((char) ((0x20 | (value & 0x1F)) + 63));
+            value >>= 5;
+        }
+        out.append((char) (value + 63));
+    }
+}
@@ -0,0 +1,47 @@
+package kz.eospatial.GeoForestry.utils;
+
+import java.util.Locale;
+
+// Формат координат в ответах публичного API. JSON - прежние объекты/массивы чисел,
+// POLYLINE - строки Google Encoded Polyline, QUANTIZED - целые разности в фиксированной точке.
+public enum CoordinateEncoding {
+    JSON("json"),
+    POLYLINE("polyline"),
+    QUANTIZED("quantized");
+
+    public static final String POLYLINE_MEDIA_TYPE = "application/vnd.geoforestry.polyline+json";
+    public static final String QUANTIZED_MEDIA_TYPE = "application/vnd.geoforestry.quantized+json";
+
+    private final String value;
+
+    CoordinateEncoding(String value) {
+        this.value = value;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    // Параметр запроса важнее заголовка Accept; без обоих - обычный JSON
+    public static CoordinateEncoding fromRequest(String encoding, String accept) {
+        if (encoding != null && !encoding.isBlank()) {
+            for (CoordinateEncoding candidate : values()) {
+                if (candidate.value.equalsIgnoreCase(encoding.trim())) {
+                    return candidate;
+                }
+            }
+            throw new IllegalArgumentException("Unsupported coordinate encoding: " + encoding
+                    + ". Supported values: json, polyline, quantized");
+        }
+        if (accept != null) {
+            String lowerAccept = accept.toLowerCase(Locale.ROOT);
+            if (lowerAccept.contains(POLYLINE_MEDIA_TYPE)) {
+                return POLYLINE;
+            }
+            if (lowerAccept.contains(QUANTIZED_MEDIA_TYPE)) {
+                return QUANTIZED;
+            }
+        }
+        return JSON;
+    }
+}
@@ -1,46 +1,356 @@
 package kz.eospatial.GeoForestry.utils;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.locationtech.jts.algorithm.Orientation;
 import org.locationtech.jts.geom.*;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import org.locationtech.jts.geom.impl.PackedCoordinateSequenceFactory;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 public class GeoJsonUtils {
 
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final GeometryFactory GEOMETRY_FACTORY = new GeometryFactory();
+
+    // Начиная с этого числа вершин полигоны строятся параллельно
+    private static final int PARALLEL_VERTEX_THRESHOLD = 50_000;
+    // Минимальный объём работы (в вершинах) для одной задачи ForkJoin
+    private static final int TASK_VERTEX_THRESHOLD = 10_000;
+
     public static MultiPolygon parseGeoJson(String geoJson) throws IOException {
-        ObjectMapper objectMapper = new ObjectMapper();
-        JsonNode root = objectMapper.readTree(geoJson);
+        return parseGeoJson(new ByteArrayInputStream(geoJson.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    // Потоковый разбор FeatureCollection, Feature или отдельной геометрии.
+    // Учитываются все объекты с геометрией Polygon и MultiPolygon вместе с внутренними контурами (дырами).
+    // Координаты читаются прямо из потока, дерево JSON не строится.
+    public static MultiPolygon parseGeoJson(InputStream geoJson) throws IOException {
+        List<double[][]> polygons = new ArrayList<>();
+        try (JsonParser parser = JSON_FACTORY.createParser(geoJson)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "GeoJSON must be a JSON object");
+            }
+            readObject(parser, polygons);
+        }
+        if (polygons.isEmpty()) {
+            throw new IOException("GeoJSON does not contain Polygon or MultiPolygon geometries");
+        }
+        return buildMultiPolygon(polygons);
+    }
 
-        // Переходим к координатам MultiPolygon
-        JsonNode coordinatesNode = root.get("features").get(0)
-                .get("geometry").get("coordinates");
+    // Объект GeoJSON любого уровня: коллекция, объект или геометрия
+    private static void readObject(JsonParser parser, List<double[][]> polygons) throws IOException {
+        String type = null;
+        List<double[][]> coordinates = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if ("type".equals(field) && value == JsonToken.VALUE_STRING) {
+                type = parser.getText();
+            } else if ("features".equals(field) && value == JsonToken.START_ARRAY) {
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    if (parser.currentToken() == JsonToken.START_OBJECT) {
+                        readObject(parser, polygons);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else if ("geometry".equals(field) && value == JsonToken.START_OBJECT) {
+                readObject(parser, polygons);
+            } else if ("coordinates".equals(field) && value == JsonToken.START_ARRAY) {
+                if (type != null && !isAreal(type)) {
+                    // Тип уже известен и не площадной: координаты не разбираются
+                    parser.skipChildren();
+                } else {
+                    coordinates = readPolygons(parser);
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        // Поле type может идти после coordinates, поэтому тип и кольца проверяются в конце объекта:
+        // координаты линий той же вложенности не должны давать ошибку колец
+        if (coordinates != null && (type == null || isAreal(type))) {
+            for (double[][] polygon : coordinates) {
+                for (double[] ring : polygon) {
+                    checkRing(parser, ring);
+                }
+            }
+            polygons.addAll(coordinates);
+        }
+    }
+
+    private static boolean isAreal(String type) {
+        return "Polygon".equals(type) || "MultiPolygon".equals(type);
+    }
 
-        GeometryFactory geometryFactory = new GeometryFactory();
-        Polygon[] polygons = new Polygon[coordinatesNode.size()];
+    // Координаты Polygon ([кольцо][точка]) или MultiPolygon ([полигон][кольцо][точка]).
+    // Вид определяется по глубине вложенности первой точки.
+    // Каждый полигон - массив колец, кольцо - плотный массив lon,lat,lon,lat...
+    private static List<double[][]> readPolygons(JsonParser parser) throws IOException {
+        List<double[][]> polygons = new ArrayList<>();
+        List<double[]> rings = new ArrayList<>();
+        double[] ring = new double[64];
+        int ringSize = 0;
+        int ordinate = 0;
+        int depth = 1;
+        int positionDepth = -1;
 
-        for (int i = 0; i < coordinatesNode.size(); i++) {
-            JsonNode polygonNode = coordinatesNode.get(i).get(0);
-            Coordinate[] coordinates = new Coordinate[polygonNode.size()];
-            for (int j = 0; j < polygonNode.size(); j++) {
-                JsonNode coord = polygonNode.get(j);
-                double lon = coord.get(0).asDouble();
-                double lat = coord.get(1).asDouble();
-                coordinates[j] = new Coordinate(lon, lat);
+        while (depth > 0) {
+            JsonToken token = parser.nextToken();
+            if (token == null) {
+                throw new JsonParseException(parser, "Unexpected end of GeoJSON coordinates");
+            }
+            switch (token) {
+                case START_ARRAY:
+                    depth++;
+                    if (depth == positionDepth) {
+                        ordinate = 0;
+                    }
+                    break;
+                case VALUE_NUMBER_INT:
+                case VALUE_NUMBER_FLOAT:
+                    if (positionDepth < 0) {
+                        positionDepth = depth;
+                        if (positionDepth != 3 && positionDepth != 4) {
+                            // Точки и линии не являются площадными объектами
+                            skipRemaining(parser, depth);
+                            return List.of();
+                        }
+                    }
+                    if (depth != positionDepth) {
+                        throw new JsonParseException(parser, "Inconsistent nesting of GeoJSON coordinates");
+                    }
+                    // Высота и прочие измерения игнорируются
+                    if (ordinate < 2) {
+                        if (ringSize == ring.length) {
+                            ring = Arrays.copyOf(ring, ring.length * 2);
+                        }
+                        ring[ringSize++] = parser.getDoubleValue();
+                    }
+                    ordinate++;
+                    break;
+                case END_ARRAY:
+                    if (depth == positionDepth) {
+                        if (ordinate < 2) {
+                            throw new JsonParseException(parser, "GeoJSON position must have at least two coordinates");
+                        }
+                    } else if (depth == positionDepth - 1) {
+                        rings.add(Arrays.copyOf(ring, ringSize));
+                        ringSize = 0;
+                    } else if (depth == positionDepth - 2) {
+                        if (!rings.isEmpty()) {
+                            polygons.add(rings.toArray(new double[0][]));
+                        }
+                        rings.clear();
+                    }
+                    depth--;
+                    break;
+                default:
+                    parser.skipChildren();
             }
+        }
+        return polygons;
+    }
+
+    // Кольцу нужно не менее четырёх точек с учётом замыкания (незамкнутое кольцо замыкается в buildRing).
+    // Проверка при разборе, чтобы некорректный ввод давал ошибку разбора, а не IllegalArgumentException из JTS
+    private static void checkRing(JsonParser parser, double[] ring) throws JsonParseException {
+        int positions = ring.length / 2;
+        boolean closed = positions > 1 && ring[0] == ring[ring.length - 2] && ring[1] == ring[ring.length - 1];
+        if ((closed ? positions : positions + 1) < 4) {
+            throw new JsonParseException(parser, "GeoJSON linear ring must have at least four positions, got " + positions);
+        }
+    }
 
-            // Замыкаем полигон, если необходимо
-            if (!coordinates[0].equals2D(coordinates[coordinates.length - 1])) {
-                coordinates = Arrays.copyOf(coordinates, coordinates.length + 1);
-                coordinates[coordinates.length - 1] = coordinates[0];
+    private static void skipRemaining(JsonParser parser, int depth) throws IOException {
+        while (depth > 0) {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.START_ARRAY) {
+                depth++;
+            } else if (token == JsonToken.END_ARRAY) {
+                depth--;
+            } else if (token == null) {
+                return;
             }
+        }
+    }
 
-            LinearRing shell = geometryFactory.createLinearRing(coordinates);
-            polygons[i] = geometryFactory.createPolygon(shell);
+    private static MultiPolygon buildMultiPolygon(List<double[][]> rawPolygons) {
+        Polygon[] polygons = new Polygon[rawPolygons.size()];
+        long vertices = 0;
+        for (double[][] rings : rawPolygons) {
+            for (double[] ring : rings) {
+                vertices += ring.length / 2;
+            }
+        }
+        PolygonBuildTask task = new PolygonBuildTask(rawPolygons, polygons, 0, polygons.length);
+        if (vertices >= PARALLEL_VERTEX_THRESHOLD && polygons.length > 1) {
+            ForkJoinPool.commonPool().invoke(task);
+        } else {
+            task.compute();
         }
 
         // Создаем MultiPolygon
-        return geometryFactory.createMultiPolygon(polygons);
+        return GEOMETRY_FACTORY.createMultiPolygon(polygons);
+    }
+
+    // Построение колец и полигонов для диапазона [from, to), большие диапазоны делятся пополам
+    private static final class PolygonBuildTask extends RecursiveAction {
+        private final List<double[][]> rawPolygons;
+        private final Polygon[] target;
+        private final int from;
+        private final int to;
+
+        private PolygonBuildTask(List<double[][]> rawPolygons, Polygon[] target, int from, int to) {
+            this.rawPolygons = rawPolygons;
+            this.target = target;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1 && vertexCount() > TASK_VERTEX_THRESHOLD) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new PolygonBuildTask(rawPolygons, target, from, middle),
+                        new PolygonBuildTask(rawPolygons, target, middle, to));
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                target[i] = buildPolygon(rawPolygons.get(i));
+            }
+        }
+
+        private long vertexCount() {
+            long count = 0;
+            for (int i = from; i < to; i++) {
+                for (double[] ring : rawPolygons.get(i)) {
+                    count += ring.length / 2;
+                }
+            }
+            return count;
+        }
+    }
+
+    private static Polygon buildPolygon(double[][] rings) {
+        LinearRing shell = buildRing(rings[0], true);
+        LinearRing[] holes = new LinearRing[rings.length - 1];
+        for (int i = 1; i < rings.length; i++) {
+            holes[i - 1] = buildRing(rings[i], false);
+        }
+        return GEOMETRY_FACTORY.createPolygon(shell, holes);
+    }
+
+    // Внешний контур ориентируется против часовой стрелки, дыры - по часовой (RFC 7946)
+    private static LinearRing buildRing(double[] ordinates, boolean shell) {
+        int size = ordinates.length;
+        // Замыкаем полигон, если необходимо
+        if (size >= 2 && (ordinates[0] != ordinates[size - 2] || ordinates[1] != ordinates[size - 1])) {
+            ordinates = Arrays.copyOf(ordinates, size + 2);
+            ordinates[size] = ordinates[0];
+            ordinates[size + 1] = ordinates[1];
+        }
+        CoordinateSequence sequence = PackedCoordinateSequenceFactory.DOUBLE_FACTORY.create(ordinates, 2);
+        if (sequence.size() >= 4 && Orientation.isCCW(sequence) != shell) {
+            sequence = PackedCoordinateSequenceFactory.DOUBLE_FACTORY.create(reverse(ordinates), 2);
+        }
+        return GEOMETRY_FACTORY.createLinearRing(sequence);
+    }
+
+    private static double[] reverse(double[] ordinates) {
+        double[] reversed = new double[ordinates.length];
+        for (int i = 0, j = ordinates.length - 2; j >= 0; i += 2, j -= 2) {
+            reversed[i] = ordinates[j];
+            reversed[i + 1] = ordinates[j + 1];
+        }
+        return reversed;
+    }
+
+    public static byte[] toGeoJson(MultiPolygon multiPolygon) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(multiPolygon.getNumPoints() * 24 + 64);
+        writeGeoJson(multiPolygon, out);
+        return out.toByteArray();
+    }
+
+    // Запись геометрии MultiPolygon в GeoJSON напрямую из последовательностей координат
+    public static void writeGeoJson(MultiPolygon multiPolygon, OutputStream out) throws IOException {
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(out, JsonEncoding.UTF8)) {
+            generator.writeStartObject();
+            generator.writeStringField("type", "MultiPolygon");
+            generator.writeArrayFieldStart("coordinates");
+            for (int i = 0; i < multiPolygon.getNumGeometries(); i++) {
+                Polygon polygon = (Polygon) multiPolygon.getGeometryN(i);
+                generator.writeStartArray();
+                writeRing(generator, polygon.getExteriorRing().getCoordinateSequence());
+                for (int j = 0; j < polygon.getNumInteriorRing(); j++) {
+                    writeRing(generator, polygon.getInteriorRingN(j).getCoordinateSequence());
+                }
+                generator.writeEndArray();
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+    }
+
+    // Геометрия с компактными контурами: каждое кольцо - строка Polyline или массив квантованных разностей.
+    // Структура вложенности та же, что у GeoJSON MultiPolygon; формат, точность и порядок осей указаны в самом объекте.
+    public static byte[] toCompactGeoJson(MultiPolygon multiPolygon, CoordinateEncoding encoding, int precision) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(multiPolygon.getNumPoints() * 6 + 64);
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(out, JsonEncoding.UTF8)) {
+            generator.writeStartObject();
+            generator.writeStringField("type", "MultiPolygon");
+            generator.writeStringField("encoding", encoding.getValue());
+            generator.writeNumberField("precision", precision);
+            generator.writeStringField("order", CompactCoordinates.AXIS_ORDER);
+            generator.writeArrayFieldStart("coordinates");
+            for (int i = 0; i < multiPolygon.getNumGeometries(); i++) {
+                Polygon polygon = (Polygon) multiPolygon.getGeometryN(i);
+                generator.writeStartArray();
+                writeCompactRing(generator, polygon.getExteriorRing().getCoordinateSequence(), encoding, precision);
+                for (int j = 0; j < polygon.getNumInteriorRing(); j++) {
+                    writeCompactRing(generator, polygon.getInteriorRingN(j).getCoordinateSequence(), encoding, precision);
+                }
+                generator.writeEndArray();
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+        return out.toByteArray();
+    }
+
+    private static void writeCompactRing(JsonGenerator generator, CoordinateSequence sequence,
+                                         CoordinateEncoding encoding, int precision) throws IOException {
+        if (encoding == CoordinateEncoding.POLYLINE) {
+            generator.writeString(CompactCoordinates.polyline(sequence, precision));
+        } else {
+            CompactCoordinates.writeQuantized(generator, sequence, precision);
+        }
+    }
+
+    private static void writeRing(JsonGenerator generator, CoordinateSequence sequence) throws IOException {
+        generator.writeStartArray();
+        for (int i = 0; i < sequence.size(); i++) {
+            generator.writeStartArray();
+            generator.writeNumber(sequence.getX(i));
+            generator.writeNumber(sequence.getY(i));
+            generator.writeEndArray();
+        }
+        generator.writeEndArray();
     }
 }
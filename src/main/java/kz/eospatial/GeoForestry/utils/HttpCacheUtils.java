@@ -0,0 +1,78 @@
+package kz.eospatial.GeoForestry.utils;
+
+import kz.eospatial.GeoForestry.dto.ForestryDto;
+import org.springframework.http.CacheControl;
+
+import java.util.Locale;
+
+public class HttpCacheUtils {
+
+    // Сильный ETag: идентификатор лесничества и версия его данных
+    public static String forestryETag(ForestryDto forestry) {
+        long version = forestry.getVersion() != null ? forestry.getVersion() : 0L;
+        return "\"" + forestry.getId() + "-" + version + "\"";
+    }
+
+    // Каждый уровень детализации геометрии — отдельное представление со своим ETag
+    public static String geometryETag(ForestryDto forestry, int level) {
+        long version = forestry.getVersion() != null ? forestry.getVersion() : 0L;
+        return "\"" + forestry.getId() + "-" + version + "-g" + level + "\"";
+    }
+
+    // Отдельный ETag для каждого формата координат; для обычного JSON остаётся прежним
+    public static String withEncoding(String eTag, CoordinateEncoding encoding, int precision) {
+        if (encoding == CoordinateEncoding.JSON) {
+            return eTag;
+        }
+        return eTag.substring(0, eTag.length() - 1) + "-" + encoding.getValue() + precision + "\"";
+    }
+
+    // ETag сжатого представления того же ресурса
+    public static String gzipETag(String eTag) {
+        return eTag.substring(0, eTag.length() - 1) + "-gz\"";
+    }
+
+    // Accept-Encoding с учётом q-значений: "gzip;q=0" означает отказ от gzip.
+    // Явно указанный gzip (или x-gzip) важнее "*"
+    public static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isBlank()) {
+            return false;
+        }
+        Double gzipQuality = null;
+        Double wildcardQuality = null;
+        for (String part : acceptEncoding.split(",")) {
+            String[] params = part.split(";");
+            String coding = params[0].trim().toLowerCase(Locale.ROOT);
+            double quality = quality(params);
+            if (coding.equals("gzip") || coding.equals("x-gzip")) {
+                gzipQuality = gzipQuality == null ? quality : Math.max(gzipQuality, quality);
+            } else if (coding.equals("*")) {
+                wildcardQuality = quality;
+            }
+        }
+        if (gzipQuality != null) {
+            return gzipQuality > 0;
+        }
+        return wildcardQuality != null && wildcardQuality > 0;
+    }
+
+    // Некорректное q трактуется как 0, то есть как отказ
+    private static double quality(String[] params) {
+        for (int i = 1; i < params.length; i++) {
+            String param = params[i].trim();
+            if (param.length() > 1 && (param.charAt(0) == 'q' || param.charAt(0) == 'Q') && param.charAt(1) == '=') {
+                try {
+                    return Double.parseDouble(param.substring(2).trim());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    // Клиент может хранить ответ, но обязан перепроверять его через If-None-Match
+    public static CacheControl revalidate() {
+        return CacheControl.noCache().cachePrivate();
+    }
+}
@@ -0,0 +1,173 @@
+package kz.eospatial.GeoForestry.utils;
+
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.LinearRing;
+import org.locationtech.jts.geom.Polygon;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Минимальный кодировщик Mapbox Vector Tile 2.1: один слой с полигональными объектами.
+// Координаты полигонов уже должны быть в системе тайла (0..extent, ось Y вниз).
+public class MvtEncoder {
+
+    private static final int MOVE_TO = 1;
+    private static final int LINE_TO = 2;
+    private static final int CLOSE_PATH = 7;
+    private static final int GEOM_TYPE_POLYGON = 3;
+    private static final int WIRE_VARINT = 0;
+    private static final int WIRE_LENGTH_DELIMITED = 2;
+
+    private final String layerName;
+    private final int extent;
+    private final List<byte[]> features = new ArrayList<>();
+
+    public MvtEncoder(String layerName, int extent) {
+        this.layerName = layerName;
+        this.extent = extent;
+    }
+
+    public boolean isEmpty() {
+        return features.isEmpty();
+    }
+
+    // Добавляет объект из полигонов; вырожденные после округления кольца отбрасываются
+    public void addPolygons(long id, List<Polygon> polygons) {
+        IntBuffer geometry = new IntBuffer();
+        int[] cursor = new int[2];
+        for (Polygon polygon : polygons) {
+            if (!encodeRing(polygon.getExteriorRing(), true, geometry, cursor)) {
+                continue;
+            }
+            for (int i = 0; i < polygon.getNumInteriorRing(); i++) {
+                encodeRing(polygon.getInteriorRingN(i), false, geometry, cursor);
+            }
+        }
+        if (geometry.size == 0) {
+            return;
+        }
+        ByteArrayOutputStream feature = new ByteArrayOutputStream();
+        writeTag(feature, 1, WIRE_VARINT);
+        writeVarint(feature, id);
+        writeTag(feature, 3, WIRE_VARINT);
+        writeVarint(feature, GEOM_TYPE_POLYGON);
+        ByteArrayOutputStream packed = new ByteArrayOutputStream(geometry.size * 2);
+        for (int i = 0; i < geometry.size; i++) {
+            writeVarint(packed, geometry.values[i] & 0xFFFFFFFFL);
+        }
+        writeBytes(feature, 4, packed.toByteArray());
+        features.add(feature.toByteArray());
+    }
+
+    public byte[] encode() {
+        ByteArrayOutputStream layer = new ByteArrayOutputStream();
+        writeTag(layer, 15, WIRE_VARINT);
+        writeVarint(layer, 2);
+        writeBytes(layer, 1, layerName.getBytes(StandardCharsets.UTF_8));
+        for (byte[] feature : features) {
+            writeBytes(layer, 2, feature);
+        }
+        writeTag(layer, 5, WIRE_VARINT);
+        writeVarint(layer, extent);
+
+        ByteArrayOutputStream tile = new ByteArrayOutputStream();
+        writeBytes(tile, 3, layer.toByteArray());
+        return tile.toByteArray();
+    }
+
+    // Внешнее кольцо должно иметь положительную площадь в координатах тайла, дыры — отрицательную
+    private static boolean encodeRing(LinearRing ring, boolean exterior, IntBuffer out, int[] cursor) {
+        CoordinateSequence sequence = ring.getCoordinateSequence();
+        // Последняя точка замкнутого кольца не кодируется: её заменяет ClosePath
+        int size = sequence.size() - 1;
+        if (size < 3) {
+            return false;
+        }
+        int[] xs = new int[size];
+        int[] ys = new int[size];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            int x = (int) Math.round(sequence.getX(i));
+            int y = (int) Math.round(sequence.getY(i));
+            if (count > 0 && xs[count - 1] == x && ys[count - 1] == y) {
+                continue;
+            }
+            xs[count] = x;
+            ys[count] = y;
+            count++;
+        }
+        while (count > 1 && xs[count - 1] == xs[0] && ys[count - 1] == ys[0]) {
+            count--;
+        }
+        if (count < 3) {
+            return false;
+        }
+        long area = 0;
+        for (int i = 0, j = count - 1; i < count; j = i++) {
+            area += (long) xs[j] * ys[i] - (long) xs[i] * ys[j];
+        }
+        if (area == 0) {
+            return false;
+        }
+        boolean reverse = (area > 0) != exterior;
+
+        out.add(command(MOVE_TO, 1));
+        int first = reverse ? count - 1 : 0;
+        moveCursor(xs[first], ys[first], out, cursor);
+        out.add(command(LINE_TO, count - 1));
+        for (int k = 1; k < count; k++) {
+            int i = reverse ? count - 1 - k : k;
+            moveCursor(xs[i], ys[i], out, cursor);
+        }
+        out.add(command(CLOSE_PATH, 1));
+        return true;
+    }
+
+    private static void moveCursor(int x, int y, IntBuffer out, int[] cursor) {
+        out.add(zigZag(x - cursor[0]));
+        out.add(zigZag(y - cursor[1]));
+        cursor[0] = x;
+        cursor[1] = y;
+    }
+
+    private static int command(int id, int count) {
+        return (id & 0x7) | (count << 3);
+    }
+
+    private static int zigZag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static void writeTag(ByteArrayOutputStream out, int field, int wireType) {
+        writeVarint(out, ((long) field << 3) | wireType);
+    }
+
+    private static void writeBytes(ByteArrayOutputStream out, int field, byte[] bytes) {
+        writeTag(out, field, WIRE_LENGTH_DELIMITED);
+        writeVarint(out, bytes.length);
+        out.writeBytes(bytes);
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static final class IntBuffer {
+        private int[] values = new int[64];
+        private int size;
+
+        private void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package kz.eospatial.GeoForestry.utils;
+
+import org.locationtech.jts.geom.Envelope;
+
+import java.util.Objects;
+
+// Адресация тайлов XYZ в проекции Web Mercator
+public class TileUtils {
+
+    public static final int MAX_ZOOM = 22;
+
+    // Web Mercator не определён у полюсов
+    private static final double MAX_LATITUDE = 85.0511287798066;
+
+    public static boolean isValid(int z, int x, int y) {
+        if (z < 0 || z > MAX_ZOOM) {
+            return false;
+        }
+        int tiles = 1 << z;
+        return x >= 0 && x < tiles && y >= 0 && y < tiles;
+    }
+
+    // Охват тайла в градусах (lon/lat)
+    public static Envelope tileEnvelope(int z, int x, int y) {
+        int tiles = 1 << z;
+        return new Envelope(tileXToLon(x, tiles), tileXToLon(x + 1, tiles),
+                tileYToLat(y + 1, tiles), tileYToLat(y, tiles));
+    }
+
+    // Дробная координата тайла по долготе на данном зуме
+    public static double lonToTileX(double lon, int z) {
+        return (lon + 180.0) / 360.0 * (1 << z);
+    }
+
+    // Дробная координата тайла по широте (ось Y направлена вниз)
+    public static double latToTileY(double lat, int z) {
+        double latRad = Math.toRadians(Math.max(-MAX_LATITUDE, Math.min(MAX_LATITUDE, lat)));
+        return (1.0 - Math.log(Math.tan(latRad) + 1.0 / Math.cos(latRad)) / Math.PI) / 2.0 * (1 << z);
+    }
+
+    // Охват тайла, расширенный на долю его размера (буфер вокруг тайла при отрисовке)
+    public static Envelope tileEnvelope(Tile tile, double bufferRatio) {
+        Envelope envelope = tileEnvelope(tile.getZ(), tile.getX(), tile.getY());
+        envelope.expandBy(envelope.getWidth() * bufferRatio, envelope.getHeight() * bufferRatio);
+        return envelope;
+    }
+
+    private static double tileXToLon(int x, int tiles) {
+        return x * 360.0 / tiles - 180.0;
+    }
+
+    private static double tileYToLat(int y, int tiles) {
+        return Math.toDegrees(Math.atan(Math.sinh(Math.PI * (1.0 - 2.0 * y / tiles))));
+    }
+
+    public static final class Tile {
+        private final int z;
+        private final int x;
+        private final int y;
+
+        public Tile(int z, int x, int y) {
+            this.z = z;
+            this.x = x;
+            this.y = y;
+        }
+
+        public int getZ() {
+            return z;
+        }
+
+        public int getX() {
+            return x;
+        }
+
+        public int getY() {
+            return y;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Tile tile)) return false;
+            return z == tile.z && x == tile.x && y == tile.y;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(z, x, y);
+        }
+
+        @Override
+        public String toString() {
+            return z + "/" + x + "/" + y;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package kz.eospatial.GeoForestry.cache;
+
+import kz.eospatial.GeoForestry.repo.ForestryRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TokenBloomFilterTest {
+
+	private final ForestryRepository forestryRepository = mock(ForestryRepository.class);
+
+	@Test
+	void passesEverythingUntilBuilt() {
+		TokenBloomFilter filter = new TokenBloomFilter(forestryRepository, 1000, 0.01);
+
+		assertTrue(filter.mightContain("unknown"));
+		assertEquals(false, filter.stats().get("ready"));
+	}
+
+	@Test
+	void hasNoFalseNegatives() {
+		List<String> tokens = tokens(10_000, 1);
+		when(forestryRepository.findAllTokens()).thenReturn(tokens);
+		TokenBloomFilter filter = new TokenBloomFilter(forestryRepository, 10_000, 0.01);
+
+		filter.rebuild();
+
+		for (String token : tokens) {
+			assertTrue(filter.mightContain(token), token);
+		}
+	}
+
+	@Test
+	void falsePositiveRateStaysNearConfiguredBound() {
+		when(forestryRepository.findAllTokens()).thenReturn(tokens(10_000, 2));
+		TokenBloomFilter filter = new TokenBloomFilter(forestryRepository, 10_000, 0.01);
+		filter.rebuild();
+
+		int falsePositives = 0;
+		for (String absent : tokens(100_000, 3)) {
+			if (filter.mightContain(absent)) {
+				falsePositives++;
+			}
+		}
+
+		// Ожидаемая доля ~1%; двукратный запас покрывает разброс выборки
+		assertTrue(falsePositives < 2_000, "false positives: " + falsePositives);
+	}
+
+	@Test
+	void tokensAddedAfterBuildAreFound() {
+		when(forestryRepository.findAllTokens()).thenReturn(tokens(100, 4));
+		TokenBloomFilter filter = new TokenBloomFilter(forestryRepository, 1000, 0.01);
+		filter.rebuild();
+
+		filter.add("issued-later");
+
+		assertTrue(filter.mightContain("issued-later"));
+	}
+
+	@Test
+	void tokensIssuedDuringRebuildAreNotLost() {
+		TokenBloomFilter filter = new TokenBloomFilter(forestryRepository, 1000, 0.01);
+		when(forestryRepository.findAllTokens()).thenAnswer(invocation -> {
+			// Токен выдан, пока читается список из базы
+			filter.add("issued-during-rebuild");
+			return tokens(100, 5);
+		});
+
+		filter.rebuild();
+
+		assertTrue(filter.mightContain("issued-during-rebuild"));
+	}
+
+	@Test
+	void nullTokenIsRejected() {
+		when(forestryRepository.findAllTokens()).thenReturn(List.of("a"));
+		TokenBloomFilter filter = new TokenBloomFilter(forestryRepository, 10, 0.01);
+		filter.rebuild();
+
+		filter.add(null);
+
+		assertFalse(filter.mightContain(null));
+	}
+
+	@Test
+	void failedBuildKeepsPassingEverything() {
+		when(forestryRepository.findAllTokens()).thenThrow(new IllegalStateException("database unavailable"));
+		TokenBloomFilter filter = new TokenBloomFilter(forestryRepository, 1000, 0.01);
+
+		filter.rebuild();
+
+		assertTrue(filter.mightContain("unknown"));
+	}
+
+	@Test
+	void statsCountRejectedPassedAndFalsePositives() {
+		when(forestryRepository.findAllTokens()).thenReturn(List.of("present"));
+		TokenBloomFilter filter = new TokenBloomFilter(forestryRepository, 1000, 0.0001);
+		filter.rebuild();
+
+		filter.mightContain("present");
+		filter.mightContain("absent");
+		filter.recordFalsePositive();
+
+		Map<String, Object> stats = filter.stats();
+		assertEquals(true, stats.get("ready"));
+		assertEquals(1L, stats.get("rejected"));
+		assertEquals(1L, stats.get("passed"));
+		assertEquals(1L, stats.get("falsePositives"));
+		assertEquals(0.5, stats.get("falsePositiveRate"));
+	}
+
+	private static List<String> tokens(int count, long seed) {
+		Random random = new Random(seed);
+		List<String> tokens = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			tokens.add(new UUID(random.nextLong(), random.nextLong()).toString());
+		}
+		return tokens;
+	}
+}
@@ -0,0 +1,73 @@
+package kz.eospatial.GeoForestry.cache;
+
+import kz.eospatial.GeoForestry.events.ForestryGeometryChangedEvent;
+import kz.eospatial.GeoForestry.utils.TileUtils.Tile;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.locationtech.jts.geom.Envelope;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class VectorTileCacheTest {
+
+	private static final Tile TILE = new Tile(0, 0, 0);
+	private static final byte[] DATA = {1, 2, 3};
+
+	@TempDir
+	Path directory;
+
+	private VectorTileCache cache;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		cache = new VectorTileCache(100, 3600, true, directory.toString(), 100);
+		cache.init();
+	}
+
+	@Test
+	void tileIsServedFromMemoryAndDisk() throws IOException {
+		cache.put(TILE, DATA, cache.generation());
+
+		assertArrayEquals(DATA, cache.get(TILE));
+		// Тайл записан и на диск
+		assertEquals(1, tileFiles());
+	}
+
+	@Test
+	void tileRenderedBeforeInvalidationIsNotStored() throws IOException {
+		long renderedAt = cache.generation();
+		cache.onGeometryChanged(new ForestryGeometryChangedEvent(1L, new Envelope(-1, 1, -1, 1), null));
+
+		cache.put(TILE, DATA, renderedAt);
+
+		assertNull(cache.get(TILE));
+		assertEquals(0, tileFiles());
+	}
+
+	@Test
+	void invalidationRemovesAffectedTiles() throws IOException {
+		cache.put(TILE, DATA, cache.generation());
+
+		cache.onGeometryChanged(new ForestryGeometryChangedEvent(1L, new Envelope(-1, 1, -1, 1), null));
+
+		assertNull(cache.get(TILE));
+		assertEquals(0, tileFiles());
+	}
+
+	// Готовые тайлы и незавершённые временные файлы
+	private long tileFiles() throws IOException {
+		try (Stream<Path> files = Files.walk(directory)) {
+			return files.filter(Files::isRegularFile)
+					.filter(file -> file.getFileName().toString().matches("\\d+\\.mvt|tile-.*\\.tmp"))
+					.count();
+		}
+	}
+}
@@ -0,0 +1,126 @@
+package kz.eospatial.GeoForestry.models;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CoordinateArrayCodecTest {
+
+	// Половина шага фиксированной точки 1e-7 градуса
+	private static final double TOLERANCE = 5e-8;
+
+	@Test
+	void emptyArrayRoundTrips() {
+		byte[] encoded = CoordinateArrayCodec.encode(CoordinateArray.empty());
+
+		assertArrayEquals(new byte[]{CoordinateArrayCodec.FORMAT_FIXED_POINT_DELTA, 0}, encoded);
+		assertSame(CoordinateArray.empty(), CoordinateArrayCodec.decode(encoded));
+	}
+
+	@Test
+	void singlePointRoundTrips() {
+		CoordinateArray decoded = CoordinateArrayCodec.decode(CoordinateArrayCodec.encode(CoordinateArray.of(51.1605227, 71.4703558)));
+
+		assertEquals(1, decoded.size());
+		assertEquals(51.1605227, decoded.getLatitude(0), TOLERANCE);
+		assertEquals(71.4703558, decoded.getLongitude(0), TOLERANCE);
+	}
+
+	@Test
+	void extremeValuesRoundTrip() {
+		CoordinateArray coordinates = CoordinateArray.of(
+				90, 180,
+				-90, -180,
+				90, -180,
+				-90, 180,
+				0, 0,
+				-0.0000001, 0.0000001);
+
+		assertRoundTrip(coordinates, CoordinateArrayCodec.decode(CoordinateArrayCodec.encode(coordinates)));
+	}
+
+	@Test
+	void randomTrackRoundTripsWithinPrecision() {
+		Random random = new Random(42);
+		CoordinateArray.Builder builder = CoordinateArray.builder(1000);
+		double lat = 48.0;
+		double lon = 68.0;
+		for (int i = 0; i < 1000; i++) {
+			lat = Math.max(-90, Math.min(90, lat + (random.nextDouble() - 0.5) * 0.01));
+			lon = Math.max(-180, Math.min(180, lon + (random.nextDouble() - 0.5) * 0.01));
+			builder.add(lat, lon);
+		}
+		CoordinateArray coordinates = builder.build();
+
+		byte[] encoded = CoordinateArrayCodec.encode(coordinates);
+
+		assertRoundTrip(coordinates, CoordinateArrayCodec.decode(encoded));
+		// Разности соседних точек ~0.005 градуса укладываются в 3 байта на ось
+		assertTrue(encoded.length < coordinates.size() * 6 + 8, "encoded size " + encoded.length);
+	}
+
+	@Test
+	void nonFiniteCoordinateIsRejected() {
+		assertThrows(IllegalArgumentException.class,
+				() -> CoordinateArrayCodec.encode(CoordinateArray.of(Double.NaN, 0)));
+		assertThrows(IllegalArgumentException.class,
+				() -> CoordinateArrayCodec.encode(CoordinateArray.of(0, Double.POSITIVE_INFINITY)));
+	}
+
+	@Test
+	void unknownFormatIsRejected() {
+		assertThrows(IllegalArgumentException.class, () -> CoordinateArrayCodec.decode(new byte[0]));
+		assertThrows(IllegalArgumentException.class, () -> CoordinateArrayCodec.decode(new byte[]{2, 0}));
+	}
+
+	@Test
+	void truncatedDataIsRejected() {
+		byte[] encoded = CoordinateArrayCodec.encode(CoordinateArray.of(51.0, 71.0, 51.5, 71.5));
+
+		for (int length = 1; length < encoded.length; length++) {
+			byte[] truncated = Arrays.copyOf(encoded, length);
+			assertThrows(IllegalArgumentException.class, () -> CoordinateArrayCodec.decode(truncated),
+					"length " + length);
+		}
+	}
+
+	@Test
+	void trailingBytesAreRejected() {
+		byte[] encoded = CoordinateArrayCodec.encode(CoordinateArray.of(51.0, 71.0));
+		byte[] padded = Arrays.copyOf(encoded, encoded.length + 1);
+
+		assertThrows(IllegalArgumentException.class, () -> CoordinateArrayCodec.decode(padded));
+	}
+
+	@Test
+	void impossiblePointCountIsRejected() {
+		// Заявлено 1000 точек при двух байтах данных
+		byte[] data = {CoordinateArrayCodec.FORMAT_FIXED_POINT_DELTA, (byte) 0xE8, 0x07, 0, 0};
+
+		assertThrows(IllegalArgumentException.class, () -> CoordinateArrayCodec.decode(data));
+	}
+
+	@Test
+	void overlongVarintIsRejected() {
+		byte[] data = new byte[13];
+		data[0] = CoordinateArrayCodec.FORMAT_FIXED_POINT_DELTA;
+		Arrays.fill(data, 1, data.length, (byte) 0x80);
+
+		assertThrows(IllegalArgumentException.class, () -> CoordinateArrayCodec.decode(data));
+	}
+
+	private static void assertRoundTrip(CoordinateArray expected, CoordinateArray actual) {
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(expected.getLatitude(i), actual.getLatitude(i), TOLERANCE, "latitude " + i);
+			assertEquals(expected.getLongitude(i), actual.getLongitude(i), TOLERANCE, "longitude " + i);
+		}
+	}
+}
@@ -0,0 +1,160 @@
+package kz.eospatial.GeoForestry.services;
+
+import kz.eospatial.GeoForestry.models.TokenResolution;
+import kz.eospatial.GeoForestry.repo.ForestryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class SignedTokenServiceTest {
+
+	private static final String KEY = key("0123456789abcdef0123456789abcdef");
+	private static final String OTHER_KEY = key("fedcba9876543210fedcba9876543210");
+
+	private SignedTokenService service;
+
+	@BeforeEach
+	void setUp() {
+		service = create(KEY);
+	}
+
+	@Test
+	void issuedTokenVerifiesBeforeAndAfterRegistration() {
+		LocalDate expiration = LocalDate.now().plusDays(30);
+		String token = service.issue(42L, expiration);
+
+		assertTrue(service.isSigned(token));
+		SignedTokenService.Verification unregistered = service.verify(token);
+		assertEquals(TokenResolution.Status.VALID, unregistered.getStatus());
+		assertEquals(42L, unregistered.getForestryId());
+		assertFalse(unregistered.isCurrent());
+
+		service.register(42L, token, expiration);
+
+		SignedTokenService.Verification registered = service.verify(token);
+		assertEquals(TokenResolution.Status.VALID, registered.getStatus());
+		assertEquals(42L, registered.getForestryId());
+		assertTrue(registered.isCurrent());
+	}
+
+	@Test
+	void tamperedPayloadIsRejected() {
+		String token = service.issue(42L, LocalDate.now().plusDays(30));
+		String[] parts = token.split("\\.");
+		// Чужой ID с подписью исходного токена
+		String forged = parts[0] + "." + Long.toString(43L, 36) + "." + parts[2] + "." + parts[3] + "." + parts[4];
+
+		assertNotFound(service.verify(forged));
+	}
+
+	@Test
+	void tokenSignedWithAnotherKeyIsRejected() {
+		String foreign = create(OTHER_KEY).issue(42L, LocalDate.now().plusDays(30));
+
+		assertNotFound(service.verify(foreign));
+	}
+
+	@Test
+	void malformedTokensAreRejected() {
+		String token = service.issue(42L, LocalDate.now().plusDays(30));
+		String truncatedSignature = token.substring(0, token.length() - 2);
+
+		assertNotFound(service.verify("v1.abc"));
+		assertNotFound(service.verify(token + ".extra"));
+		assertNotFound(service.verify(token.substring(0, token.lastIndexOf('.') + 1) + "not*base64"));
+		assertNotFound(service.verify(truncatedSignature));
+	}
+
+	@Test
+	void expiredTokenIsRejectedWithoutState() {
+		String token = service.issue(42L, LocalDate.now().minusDays(1));
+
+		SignedTokenService.Verification verification = service.verify(token);
+
+		assertEquals(TokenResolution.Status.EXPIRED, verification.getStatus());
+		assertNull(verification.getForestryId());
+	}
+
+	@Test
+	void registeredExpirationWins() {
+		String token = service.issue(42L, LocalDate.now().plusDays(30));
+		// Срок продлевался и сокращался без перевыпуска: действует срок из базы
+		service.register(42L, token, LocalDate.now().minusDays(1));
+
+		assertEquals(TokenResolution.Status.EXPIRED, service.verify(token).getStatus());
+
+		service.register(42L, token, null);
+
+		assertEquals(TokenResolution.Status.EXPIRED, service.verify(token).getStatus());
+	}
+
+	@Test
+	void reissuedTokenRevokesPreviousGeneration() {
+		LocalDate expiration = LocalDate.now().plusDays(30);
+		String first = service.issue(42L, expiration);
+		service.register(42L, first, expiration);
+
+		String second = service.issue(42L, expiration);
+		service.register(42L, second, expiration);
+
+		assertNotFound(service.verify(first));
+		assertEquals(TokenResolution.Status.VALID, service.verify(second).getStatus());
+		assertTrue(service.verify(second).isCurrent());
+	}
+
+	@Test
+	void generationGrowsBeforeCommit() {
+		LocalDate expiration = LocalDate.now().plusDays(30);
+		String first = service.issue(42L, expiration);
+		String second = service.issue(42L, expiration);
+
+		assertNotEquals(first, second);
+		assertEquals(Long.parseLong(first.split("\\.")[3], 36) + 1, Long.parseLong(second.split("\\.")[3], 36));
+	}
+
+	@Test
+	void switchingToUnsignedTokenForgetsState() {
+		LocalDate expiration = LocalDate.now().plusDays(30);
+		String token = service.issue(42L, expiration);
+		service.register(42L, token, expiration);
+
+		service.register(42L, "5f0c1a4e-uuid-token", expiration);
+
+		assertFalse(service.verify(token).isCurrent());
+		assertFalse(service.isSigned("5f0c1a4e-uuid-token"));
+	}
+
+	@Test
+	void signedFormatRequiresKey() {
+		SignedTokenService unsigned = new SignedTokenService(mock(ForestryRepository.class), "signed", "");
+
+		assertThrows(IllegalStateException.class, unsigned::init);
+	}
+
+	private static void assertNotFound(SignedTokenService.Verification verification) {
+		assertEquals(TokenResolution.Status.NOT_FOUND, verification.getStatus());
+		assertNull(verification.getForestryId());
+		assertFalse(verification.isCurrent());
+	}
+
+	private static SignedTokenService create(String key) {
+		SignedTokenService service = new SignedTokenService(mock(ForestryRepository.class), "signed", key);
+		service.init();
+		return service;
+	}
+
+	private static String key(String secret) {
+		return Base64.getEncoder().encodeToString(secret.getBytes(StandardCharsets.US_ASCII));
+	}
+}
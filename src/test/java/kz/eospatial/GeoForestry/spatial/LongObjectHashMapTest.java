@@ -0,0 +1,140 @@
+package kz.eospatial.GeoForestry.spatial;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LongObjectHashMapTest {
+
+	// Минимальная ёмкость таблицы: 16 слотов
+	private static final int CAPACITY = 16;
+
+	@Test
+	void putGetReplaceRemove() {
+		LongObjectHashMap<String> map = new LongObjectHashMap<>(4);
+
+		map.put(0, "zero");
+		map.put(42, "a");
+		map.put(42, "b");
+
+		assertEquals(2, map.size());
+		assertEquals("zero", map.get(0));
+		assertEquals("b", map.get(42));
+		assertNull(map.get(7));
+
+		map.remove(42);
+		map.remove(7);
+
+		assertEquals(1, map.size());
+		assertNull(map.get(42));
+		assertEquals("zero", map.get(0));
+	}
+
+	@Test
+	void negativeKeyIsRejected() {
+		LongObjectHashMap<String> map = new LongObjectHashMap<>(4);
+
+		assertThrows(IllegalArgumentException.class, () -> map.put(-1, "x"));
+	}
+
+	@Test
+	void growsPastInitialCapacity() {
+		LongObjectHashMap<Long> map = new LongObjectHashMap<>(1);
+		for (long key = 0; key < 10_000; key++) {
+			map.put(key * 31, key);
+		}
+
+		assertEquals(10_000, map.size());
+		for (long key = 0; key < 10_000; key++) {
+			assertEquals(key, map.get(key * 31));
+		}
+	}
+
+	@Test
+	void removeShiftsChainAcrossTableEnd() {
+		// Цепочка из ключей с домашним слотом 15 занимает слоты 15, 0, 1; ключ со слотом 0 встаёт за ней
+		List<Long> lastSlot = keysWithSlot(CAPACITY - 1, 3);
+		long firstSlot = keysWithSlot(0, 1).get(0);
+		LongObjectHashMap<Long> map = new LongObjectHashMap<>(1);
+		for (long key : lastSlot) {
+			map.put(key, key);
+		}
+		map.put(firstSlot, firstSlot);
+
+		map.remove(lastSlot.get(0));
+
+		assertEquals(3, map.size());
+		assertNull(map.get(lastSlot.get(0)));
+		assertEquals(lastSlot.get(1), map.get(lastSlot.get(1)));
+		assertEquals(lastSlot.get(2), map.get(lastSlot.get(2)));
+		assertEquals(firstSlot, map.get(firstSlot));
+
+		map.remove(lastSlot.get(1));
+		map.remove(lastSlot.get(2));
+
+		assertEquals(1, map.size());
+		assertEquals(firstSlot, map.get(firstSlot));
+	}
+
+	@Test
+	void matchesHashMapUnderRandomOperations() {
+		Random random = new Random(7);
+		LongObjectHashMap<Integer> map = new LongObjectHashMap<>(1);
+		Map<Long, Integer> expected = new HashMap<>();
+		for (int i = 0; i < 200_000; i++) {
+			// Узкий диапазон ключей даёт много коллизий, повторных вставок и удалений
+			long key = random.nextInt(5_000);
+			if (random.nextInt(3) == 0) {
+				map.remove(key);
+				expected.remove(key);
+			} else {
+				map.put(key, i);
+				expected.put(key, i);
+			}
+		}
+
+		assertEquals(expected.size(), map.size());
+		for (long key = 0; key < 5_000; key++) {
+			assertEquals(expected.get(key), map.get(key), "key " + key);
+		}
+	}
+
+	@Test
+	void clearRemovesEverything() {
+		LongObjectHashMap<String> map = new LongObjectHashMap<>(4);
+		map.put(1, "a");
+		map.put(2, "b");
+
+		map.clear();
+
+		assertEquals(0, map.size());
+		assertNull(map.get(1));
+		map.put(1, "c");
+		assertEquals("c", map.get(1));
+	}
+
+	// Тот же финализатор MurmurHash3, что и в LongObjectHashMap.slot
+	private static List<Long> keysWithSlot(int slot, int count) {
+		List<Long> keys = new ArrayList<>();
+		for (long key = 0; keys.size() < count; key++) {
+			long h = key;
+			h ^= h >>> 33;
+			h *= 0xff51afd7ed558ccdL;
+			h ^= h >>> 33;
+			h *= 0xc4ceb9fe1a85ec53L;
+			h ^= h >>> 33;
+			if (((int) h & (CAPACITY - 1)) == slot) {
+				keys.add(key);
+			}
+		}
+		return keys;
+	}
+}
@@ -0,0 +1,153 @@
+package kz.eospatial.GeoForestry.utils;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import kz.eospatial.GeoForestry.models.CoordinateArray;
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.impl.CoordinateArraySequence;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CompactCoordinatesTest {
+
+	// Пример из описания формата Encoded Polyline Algorithm Format (Google Maps Platform)
+	private static final CoordinateArray GOOGLE_POINTS = CoordinateArray.of(38.5, -120.2, 40.7, -120.95, 43.252, -126.453);
+	private static final String GOOGLE_POLYLINE = "_p~iF~ps|U_ulLnnqC_mqNvxq`@";
+
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+	@Test
+	void polylineMatchesGoogleReference() {
+		assertEquals(GOOGLE_POLYLINE, CompactCoordinates.polyline(GOOGLE_POINTS, 5));
+	}
+
+	@Test
+	void polylineOfJtsSequenceUsesLatLonOrder() {
+		assertEquals(GOOGLE_POLYLINE, CompactCoordinates.polyline(sequence(GOOGLE_POINTS), 5));
+	}
+
+	@Test
+	void polylineEncodesSingleValuesLikeGoogleReference() {
+		// -179.9832104 -> "`~oia@" из того же описания; второе значение 0 кодируется как "?"
+		assertEquals("`~oia@?", CompactCoordinates.polyline(CoordinateArray.of(-179.9832104, 0), 5));
+		assertEquals("??", CompactCoordinates.polyline(CoordinateArray.of(0, 0), 5));
+	}
+
+	@Test
+	void emptyInputGivesEmptyOutput() throws IOException {
+		assertEquals("", CompactCoordinates.polyline(CoordinateArray.empty(), 5));
+		assertEquals("", CompactCoordinates.polyline(new CoordinateArraySequence(0), 5));
+		assertEquals("[]", quantized(CoordinateArray.empty(), 5));
+	}
+
+	@Test
+	void extremeValuesRoundTripAtEveryPrecision() {
+		CoordinateArray extremes = CoordinateArray.of(90, 180, -90, -180, 90, -180, -90, 180, 0.0000001, -0.0000001);
+		for (int precision = CompactCoordinates.MIN_PRECISION; precision <= CompactCoordinates.MAX_PRECISION; precision++) {
+			double[] decoded = decodePolyline(CompactCoordinates.polyline(extremes, precision), precision);
+			double tolerance = 0.5 / Math.pow(10, precision) + 1e-12;
+			assertEquals(extremes.size() * 2, decoded.length);
+			for (int i = 0; i < extremes.size(); i++) {
+				assertEquals(extremes.getLatitude(i), decoded[2 * i], tolerance, "precision " + precision + ", lat " + i);
+				assertEquals(extremes.getLongitude(i), decoded[2 * i + 1], tolerance, "precision " + precision + ", lon " + i);
+			}
+		}
+	}
+
+	@Test
+	void roundingErrorDoesNotAccumulate() {
+		CoordinateArray.Builder builder = CoordinateArray.builder(1000);
+		for (int i = 0; i < 1000; i++) {
+			builder.add(50 + i * 0.0000049, 70 + i * 0.0000049);
+		}
+		CoordinateArray points = builder.build();
+
+		double[] decoded = decodePolyline(CompactCoordinates.polyline(points, 5), 5);
+
+		for (int i = 0; i < points.size(); i++) {
+			assertEquals(points.getLatitude(i), decoded[2 * i], 0.5e-5 + 1e-12);
+			assertEquals(points.getLongitude(i), decoded[2 * i + 1], 0.5e-5 + 1e-12);
+		}
+	}
+
+	@Test
+	void quantizedWritesFirstPointThenDeltasInLatLonOrder() throws IOException {
+		assertEquals("[3850000,-12020000,220000,-75000,255200,-550300]", quantized(GOOGLE_POINTS, 5));
+	}
+
+	@Test
+	void quantizedSequenceUsesSameOrderAsCoordinateArray() throws IOException {
+		for (int precision = CompactCoordinates.MIN_PRECISION; precision <= CompactCoordinates.MAX_PRECISION; precision++) {
+			assertEquals(quantized(GOOGLE_POINTS, precision), quantized(sequence(GOOGLE_POINTS), precision));
+		}
+	}
+
+	@Test
+	void precisionOutsideSupportedRangeIsRejected() {
+		assertThrows(IllegalArgumentException.class, () -> CompactCoordinates.checkPrecision(0));
+		assertThrows(IllegalArgumentException.class, () -> CompactCoordinates.checkPrecision(8));
+		assertDoesNotThrow(() -> CompactCoordinates.checkPrecision(CompactCoordinates.MIN_PRECISION));
+		assertDoesNotThrow(() -> CompactCoordinates.checkPrecision(CompactCoordinates.MAX_PRECISION));
+	}
+
+	private static CoordinateSequence sequence(CoordinateArray points) {
+		Coordinate[] coordinates = new Coordinate[points.size()];
+		for (int i = 0; i < coordinates.length; i++) {
+			coordinates[i] = new Coordinate(points.getLongitude(i), points.getLatitude(i));
+		}
+		return new CoordinateArraySequence(coordinates);
+	}
+
+	private static String quantized(CoordinateArray points, int precision) throws IOException {
+		StringWriter out = new StringWriter();
+		try (JsonGenerator generator = JSON_FACTORY.createGenerator(out)) {
+			CompactCoordinates.writeQuantized(generator, points, precision);
+		}
+		return out.toString();
+	}
+
+	private static String quantized(CoordinateSequence sequence, int precision) throws IOException {
+		StringWriter out = new StringWriter();
+		try (JsonGenerator generator = JSON_FACTORY.createGenerator(out)) {
+			CompactCoordinates.writeQuantized(generator, sequence, precision);
+		}
+		return out.toString();
+	}
+
+	// Эталонный декодер Encoded Polyline: [lat0, lon0, lat1, lon1, ...]
+	private static double[] decodePolyline(String encoded, int precision) {
+		double scale = Math.pow(10, precision);
+		List<Double> values = new ArrayList<>();
+		long lat = 0;
+		long lon = 0;
+		int index = 0;
+		while (index < encoded.length()) {
+			long[] delta = new long[2];
+			for (int axis = 0; axis < 2; axis++) {
+				long result = 0;
+				int shift = 0;
+				int b;
+				do {
+					b = encoded.charAt(index++) - 63;
+					result |= (long) (b & 0x1F) << shift;
+					shift += 5;
+				} while (b >= 0x20);
+				delta[axis] = (result & 1) != 0 ? ~(result >> 1) : result >> 1;
+			}
+			lat += delta[0];
+			lon += delta[1];
+			values.add(lat / scale);
+			values.add(lon / scale);
+		}
+		return values.stream().mapToDouble(Double::doubleValue).toArray();
+	}
+}
@@ -0,0 +1,73 @@
+package kz.eospatial.GeoForestry.utils;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.MultiPolygon;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class GeoJsonUtilsTest {
+
+	private static final String POLYGON = "{\"type\":\"Polygon\",\"coordinates\":[[[0,0],[1,0],[1,1],[0,1],[0,0]]]}";
+
+	@Test
+	void mixedFeatureCollectionKeepsOnlyArealFeatures() throws IOException {
+		String geoJson = "{\"type\":\"FeatureCollection\",\"features\":["
+				+ feature(POLYGON)
+				+ "," + feature("{\"type\":\"MultiLineString\",\"coordinates\":[[[5,5],[6,6]]]}")
+				+ "," + feature("{\"type\":\"LineString\",\"coordinates\":[[5,5],[6,6]]}")
+				+ "," + feature("{\"type\":\"Point\",\"coordinates\":[5,5]}")
+				+ "]}";
+
+		MultiPolygon result = GeoJsonUtils.parseGeoJson(geoJson);
+
+		assertEquals(1, result.getNumGeometries());
+		assertEquals(1.0, result.getArea(), 1e-12);
+	}
+
+	@Test
+	void nonArealTypeAfterCoordinatesIsSkipped() throws IOException {
+		String geoJson = "{\"type\":\"FeatureCollection\",\"features\":["
+				+ feature(POLYGON)
+				+ "," + feature("{\"coordinates\":[[[5,5],[6,6]]],\"type\":\"MultiLineString\"}")
+				+ "]}";
+
+		assertEquals(1, GeoJsonUtils.parseGeoJson(geoJson).getNumGeometries());
+	}
+
+	@Test
+	void shortPolygonRingIsRejected() {
+		String geoJson = "{\"type\":\"Polygon\",\"coordinates\":[[[0,0],[1,1],[0,0]]]}";
+
+		assertThrows(JsonParseException.class, () -> GeoJsonUtils.parseGeoJson(geoJson));
+	}
+
+	@Test
+	void shortRingIsRejectedWhenTypeFollowsCoordinates() {
+		String geoJson = "{\"coordinates\":[[[[0,0],[1,1]]]],\"type\":\"MultiPolygon\"}";
+
+		assertThrows(JsonParseException.class, () -> GeoJsonUtils.parseGeoJson(geoJson));
+	}
+
+	@Test
+	void unclosedRingWithThreePositionsIsClosed() throws IOException {
+		String geoJson = "{\"type\":\"Polygon\",\"coordinates\":[[[0,0],[1,0],[1,1]]]}";
+
+		assertEquals(0.5, GeoJsonUtils.parseGeoJson(geoJson).getArea(), 1e-12);
+	}
+
+	@Test
+	void collectionWithoutArealFeaturesIsRejected() {
+		String geoJson = "{\"type\":\"FeatureCollection\",\"features\":["
+				+ feature("{\"type\":\"MultiLineString\",\"coordinates\":[[[5,5],[6,6]]]}") + "]}";
+
+		assertThrows(IOException.class, () -> GeoJsonUtils.parseGeoJson(geoJson));
+	}
+
+	private static String feature(String geometry) {
+		return "{\"type\":\"Feature\",\"properties\":{},\"geometry\":" + geometry + "}";
+	}
+}
@@ -0,0 +1,270 @@
+package kz.eospatial.GeoForestry.utils;
+
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LinearRing;
+import org.locationtech.jts.geom.Polygon;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MvtEncoderTest {
+
+	private static final GeometryFactory GEOMETRY_FACTORY = new GeometryFactory();
+
+	@Test
+	void layerHeaderIsWritten() {
+		MvtEncoder encoder = new MvtEncoder("forestries", 4096);
+		encoder.addPolygons(1, List.of(square(0, 0, 10, false)));
+
+		Layer layer = decode(encoder.encode());
+
+		assertEquals(2, layer.version);
+		assertEquals("forestries", layer.name);
+		assertEquals(4096, layer.extent);
+		assertEquals(1, layer.features.size());
+		assertEquals(1, layer.features.get(0).id);
+		assertEquals(3, layer.features.get(0).type);
+	}
+
+	@Test
+	void squareHasOneMoveToThreeLineTosAndClosePath() {
+		MvtEncoder encoder = new MvtEncoder("layer", 4096);
+		encoder.addPolygons(7, List.of(square(100, 200, 50, false)));
+
+		int[] geometry = decode(encoder.encode()).features.get(0).geometry;
+
+		// MoveTo(1) + 2 параметра, LineTo(3) + 6 параметров, ClosePath(1)
+		assertEquals(11, geometry.length);
+		assertEquals(command(1, 1), geometry[0]);
+		assertEquals(command(2, 3), geometry[3]);
+		assertEquals(command(7, 1), geometry[10]);
+	}
+
+	@Test
+	void exteriorRingIsPositiveWhicheverWayItIsGiven() {
+		for (boolean reversed : new boolean[]{false, true}) {
+			MvtEncoder encoder = new MvtEncoder("layer", 4096);
+			encoder.addPolygons(1, List.of(square(0, 0, 10, reversed)));
+
+			List<int[]> rings = rings(decode(encoder.encode()).features.get(0).geometry);
+
+			assertEquals(1, rings.size());
+			assertTrue(area(rings.get(0)) > 0, "reversed=" + reversed);
+		}
+	}
+
+	@Test
+	void holeIsNegativeAndCursorCarriesAcrossRings() {
+		LinearRing shell = ring(0, 0, 100, 0, 100, 100, 0, 100, 0, 0);
+		// Дыра задана в том же направлении, что и внешнее кольцо
+		LinearRing hole = ring(20, 20, 80, 20, 80, 80, 20, 80, 20, 20);
+		MvtEncoder encoder = new MvtEncoder("layer", 4096);
+		encoder.addPolygons(1, List.of(GEOMETRY_FACTORY.createPolygon(shell, new LinearRing[]{hole})));
+
+		List<int[]> rings = rings(decode(encoder.encode()).features.get(0).geometry);
+
+		assertEquals(2, rings.size());
+		assertTrue(area(rings.get(0)) > 0);
+		assertTrue(area(rings.get(1)) < 0);
+		assertEquals(4, rings.get(1).length / 2);
+		// Абсолютные координаты дыры восстановлены по курсору, продолженному с внешнего кольца
+		for (int i = 0; i < rings.get(1).length; i++) {
+			int value = rings.get(1)[i];
+			assertTrue(value == 20 || value == 80, "coordinate " + value);
+		}
+	}
+
+	@Test
+	void repeatedPointsAfterRoundingAreDropped() {
+		LinearRing shell = ring(0, 0, 10, 0, 10.2, 0.3, 10, 10, 0, 10, 0.1, 0.1, 0, 0);
+		MvtEncoder encoder = new MvtEncoder("layer", 4096);
+		encoder.addPolygons(1, List.of(GEOMETRY_FACTORY.createPolygon(shell)));
+
+		List<int[]> rings = rings(decode(encoder.encode()).features.get(0).geometry);
+
+		assertArrayEquals(new int[]{0, 0, 10, 0, 10, 10, 0, 10}, rings.get(0));
+	}
+
+	@Test
+	void degenerateRingsAreSkipped() {
+		MvtEncoder encoder = new MvtEncoder("layer", 4096);
+		// После округления все точки совпадают, затем - нулевая площадь
+		encoder.addPolygons(1, List.of(GEOMETRY_FACTORY.createPolygon(ring(0, 0, 0.2, 0, 0.2, 0.2, 0, 0))));
+		encoder.addPolygons(2, List.of(GEOMETRY_FACTORY.createPolygon(ring(0, 0, 10, 0, 20, 0, 0, 0))));
+
+		assertTrue(encoder.isEmpty());
+		assertEquals(0, decode(encoder.encode()).features.size());
+	}
+
+	@Test
+	void polygonsOfOneFeatureShareGeometry() {
+		MvtEncoder encoder = new MvtEncoder("layer", 4096);
+		encoder.addPolygons(1, List.of(square(0, 0, 10, false), square(20, 20, 10, true)));
+
+		Layer layer = decode(encoder.encode());
+
+		assertFalse(encoder.isEmpty());
+		assertEquals(1, layer.features.size());
+		List<int[]> rings = rings(layer.features.get(0).geometry);
+		assertEquals(2, rings.size());
+		assertTrue(area(rings.get(0)) > 0);
+		assertTrue(area(rings.get(1)) > 0);
+	}
+
+	private static Polygon square(double x, double y, double side, boolean reversed) {
+		LinearRing ring = reversed
+				? ring(x, y, x, y + side, x + side, y + side, x + side, y, x, y)
+				: ring(x, y, x + side, y, x + side, y + side, x, y + side, x, y);
+		return GEOMETRY_FACTORY.createPolygon(ring);
+	}
+
+	private static LinearRing ring(double... xy) {
+		Coordinate[] coordinates = new Coordinate[xy.length / 2];
+		for (int i = 0; i < coordinates.length; i++) {
+			coordinates[i] = new Coordinate(xy[2 * i], xy[2 * i + 1]);
+		}
+		return GEOMETRY_FACTORY.createLinearRing(coordinates);
+	}
+
+	private static int command(int id, int count) {
+		return id | (count << 3);
+	}
+
+	// Удвоенная площадь по той же формуле, что в спецификации MVT: положительная - внешнее кольцо
+	private static long area(int[] ring) {
+		long area = 0;
+		int count = ring.length / 2;
+		for (int i = 0, j = count - 1; i < count; j = i++) {
+			area += (long) ring[2 * j] * ring[2 * i + 1] - (long) ring[2 * i] * ring[2 * j + 1];
+		}
+		return area;
+	}
+
+	// Абсолютные координаты колец [x0, y0, x1, y1, ...] с проверкой последовательности команд
+	private static List<int[]> rings(int[] geometry) {
+		List<int[]> rings = new ArrayList<>();
+		int x = 0;
+		int y = 0;
+		int i = 0;
+		while (i < geometry.length) {
+			assertEquals(command(1, 1), geometry[i++]);
+			x += unzigzag(geometry[i++]);
+			y += unzigzag(geometry[i++]);
+			int lineTo = geometry[i++];
+			assertEquals(2, lineTo & 0x7);
+			int count = lineTo >>> 3;
+			int[] ring = new int[(count + 1) * 2];
+			ring[0] = x;
+			ring[1] = y;
+			for (int k = 1; k <= count; k++) {
+				x += unzigzag(geometry[i++]);
+				y += unzigzag(geometry[i++]);
+				ring[2 * k] = x;
+				ring[2 * k + 1] = y;
+			}
+			assertEquals(command(7, 1), geometry[i++]);
+			rings.add(ring);
+		}
+		return rings;
+	}
+
+	private static int unzigzag(int value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	private static Layer decode(byte[] tile) {
+		Reader tileReader = new Reader(tile);
+		int tag = (int) tileReader.varint();
+		assertEquals((3 << 3) | 2, tag);
+		Reader reader = new Reader(tileReader.bytes());
+		assertFalse(tileReader.hasMore());
+
+		Layer layer = new Layer();
+		while (reader.hasMore()) {
+			int field = (int) reader.varint();
+			switch (field) {
+				case (15 << 3) -> layer.version = (int) reader.varint();
+				case (1 << 3) | 2 -> layer.name = new String(reader.bytes(), StandardCharsets.UTF_8);
+				case (2 << 3) | 2 -> layer.features.add(decodeFeature(reader.bytes()));
+				case (5 << 3) -> layer.extent = (int) reader.varint();
+				default -> throw new AssertionError("Unexpected layer field tag " + field);
+			}
+		}
+		return layer;
+	}
+
+	private static Feature decodeFeature(byte[] bytes) {
+		Reader reader = new Reader(bytes);
+		Feature feature = new Feature();
+		while (reader.hasMore()) {
+			int field = (int) reader.varint();
+			switch (field) {
+				case (1 << 3) -> feature.id = reader.varint();
+				case (3 << 3) -> feature.type = (int) reader.varint();
+				case (4 << 3) | 2 -> {
+					Reader packed = new Reader(reader.bytes());
+					List<Integer> values = new ArrayList<>();
+					while (packed.hasMore()) {
+						values.add((int) packed.varint());
+					}
+					feature.geometry = values.stream().mapToInt(Integer::intValue).toArray();
+				}
+				default -> throw new AssertionError("Unexpected feature field tag " + field);
+			}
+		}
+		return feature;
+	}
+
+	private static final class Layer {
+		private int version;
+		private String name;
+		private int extent;
+		private final List<Feature> features = new ArrayList<>();
+	}
+
+	private static final class Feature {
+		private long id;
+		private int type;
+		private int[] geometry;
+	}
+
+	private static final class Reader {
+		private final byte[] data;
+		private int pos;
+
+		private Reader(byte[] data) {
+			this.data = data;
+		}
+
+		private boolean hasMore() {
+			return pos < data.length;
+		}
+
+		private long varint() {
+			long result = 0;
+			for (int shift = 0; ; shift += 7) {
+				byte b = data[pos++];
+				result |= (long) (b & 0x7F) << shift;
+				if ((b & 0x80) == 0) {
+					return result;
+				}
+			}
+		}
+
+		private byte[] bytes() {
+			int length = (int) varint();
+			byte[] bytes = new byte[length];
+			System.arraycopy(data, pos, bytes, 0, length);
+			pos += length;
+			return bytes;
+		}
+	}
+}